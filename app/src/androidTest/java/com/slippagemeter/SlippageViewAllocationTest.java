@@ -0,0 +1,72 @@
+package com.slippagemeter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.LayoutInflater;
+import android.view.View;
+
+public class SlippageViewAllocationTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int FRAMES = 120;
+
+    private SlippageView mSlippageView;
+    private Canvas mCanvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        View root = LayoutInflater.from(getContext()).inflate(R.layout.activity_main, null);
+        mSlippageView = (SlippageView) root.findViewById(R.id.slippage);
+        mSlippageView.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        int height = mSlippageView.getMeasuredHeight();
+        mSlippageView.layout(0, 0, WIDTH, height);
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, height, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testSteadyStateFrameDoesNotAllocate() {
+        mSlippageView.setSlippage(2.5f);
+        drawFrame();
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        for (int i = 0; i < FRAMES; i++) {
+            drawFrame();
+        }
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertEquals("Allocations in " + FRAMES + " frames", 0, allocations);
+    }
+
+    public void testChangingSlippageDoesNotAllocate() {
+        float maxValue = mSlippageView.getStyle().getMaxValue();
+        int steps = (int) (maxValue * 10);
+        for (int step = -steps; step <= steps; step++) {
+            mSlippageView.setSlippage(step / 10f);
+            drawFrame();
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        for (int i = 0; i < FRAMES; i++) {
+            int step = (i * 7) % (2 * steps + 1) - steps;
+            mSlippageView.setSlippage(step / 10f - 0.03f * (i % 3));
+            drawFrame();
+        }
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertEquals("Allocations in " + FRAMES + " frames with changing slippage", 0, allocations);
+    }
+
+    private void drawFrame() {
+        int count = mCanvas.save();
+        mSlippageView.draw(mCanvas);
+        mCanvas.restoreToCount(count);
+    }
+}
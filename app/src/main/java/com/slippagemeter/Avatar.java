@@ -0,0 +1,37 @@
+package com.slippagemeter;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Shader;
+
+/**
+ * Square avatar bitmap scaled to the meter's avatar size, drawn as a circle through its shader. An avatar is
+ * never changed after it is built: its bitmap is not recycled and its shader's local matrix is never set, so
+ * one avatar may be drawn from several threads at once, each with a paint of its own.
+ */
+class Avatar {
+
+    private final Bitmap mBitmap;
+    private final BitmapShader mShader;
+
+    Avatar(Bitmap bitmap) {
+        mBitmap = bitmap;
+        mShader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+    }
+
+    Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    BitmapShader getShader() {
+        return mShader;
+    }
+
+    int getSize() {
+        return mBitmap.getWidth();
+    }
+
+    int getByteCount() {
+        return mBitmap.getByteCount();
+    }
+}
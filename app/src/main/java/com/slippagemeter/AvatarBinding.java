@@ -0,0 +1,91 @@
+package com.slippagemeter;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+
+/**
+ * The avatar of one meter: its custom drawable, or else the style's default, loaded through
+ * {@link AvatarLoader} at the renderer's avatar size. Loads on the main thread; the avatar may be read from any
+ * thread.
+ */
+class AvatarBinding {
+
+    interface Listener {
+        void onAvatarChanged();
+    }
+
+    private final Resources mResources;
+    private final Listener mListener;
+    private Drawable mDrawable;
+    private SlippageStyle mStyle;
+    private int mSize;
+    private AvatarRequest mRequest;
+    private volatile Avatar mAvatar;
+
+    AvatarBinding(Resources resources, Listener listener) {
+        mResources = resources;
+        mListener = listener;
+    }
+
+    Avatar getAvatar() {
+        return mAvatar;
+    }
+
+    /**
+     * Pass {@code null} to return to the style's default avatar.
+     */
+    void setDrawable(Drawable drawable) {
+        mDrawable = drawable;
+        load();
+    }
+
+    void setStyle(SlippageStyle style, int size) {
+        mStyle = style;
+        mSize = size;
+        load();
+    }
+
+    private void load() {
+        if (mStyle == null) {
+            return;
+        }
+        if (mRequest != null) {
+            mRequest.cancel();
+            mRequest = null;
+        }
+        AvatarRequest request = new AvatarRequest();
+        Avatar avatar = null;
+        if (mDrawable != null) {
+            avatar = AvatarLoader.getInstance().load(mDrawable, mSize, request);
+        } else if (mStyle.getDefaultAvatarRes() != 0) {
+            avatar = AvatarLoader.getInstance().load(mResources, mStyle.getDefaultAvatarRes(), mSize, request);
+        }
+        if (avatar == null) {
+            mRequest = request;
+        }
+        setAvatar(avatar);
+    }
+
+    private void setAvatar(Avatar avatar) {
+        if (avatar != mAvatar) {
+            mAvatar = avatar;
+            mListener.onAvatarChanged();
+        }
+    }
+
+    private class AvatarRequest implements AvatarLoader.Callback {
+        private boolean mCancelled;
+
+        void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public void onAvatarLoaded(final Avatar avatar) {
+            if (!mCancelled) {
+                mRequest = null;
+                setAvatar(avatar);
+            }
+        }
+    }
+}
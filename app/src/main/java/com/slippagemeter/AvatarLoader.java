@@ -0,0 +1,248 @@
+package com.slippagemeter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes and scales avatars off the main thread and keeps them in a memory cache keyed by source and size,
+ * so meters showing the same trader share one bitmap. Sources other than resource ids are only weakly
+ * referenced by the cache. Callbacks are delivered on the main thread.
+ */
+class AvatarLoader {
+
+    private static final int CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+    private static final int THREAD_COUNT = 2;
+
+    private static AvatarLoader sInstance;
+
+    interface Callback {
+        void onAvatarLoaded(Avatar avatar);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Key, List<Callback>> mPending = new HashMap<Key, List<Callback>>();
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREAD_COUNT,
+            new BackgroundThreadFactory("AvatarLoader"));
+    private final LruCache<Key, Avatar> mCache = new LruCache<Key, Avatar>(CACHE_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(Key key, Avatar avatar) {
+            return avatar.getByteCount();
+        }
+    };
+
+    static synchronized AvatarLoader getInstance() {
+        if (sInstance == null) {
+            sInstance = new AvatarLoader();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Loads a drawable resource. Returns the cached avatar right away when present, otherwise returns
+     * {@code null} and delivers the avatar to {@code callback} later.
+     */
+    Avatar load(final Resources resources, final int resId, final int size, Callback callback) {
+        return load(new Key(resId, size), callback, new Decoder() {
+            @Override
+            public Bitmap decode() {
+                return decodeResource(resources, resId, size);
+            }
+        });
+    }
+
+    Avatar load(Drawable drawable, final int size, Callback callback) {
+        final Drawable copy = getDrawableCopy(drawable);
+        return load(new Key(getSource(drawable), size), callback, new Decoder() {
+            @Override
+            public Bitmap decode() {
+                return renderDrawable(copy, size);
+            }
+        });
+    }
+
+    private Avatar load(final Key key, Callback callback, final Decoder decoder) {
+        Avatar avatar = mCache.get(key);
+        if (avatar != null || key.mSize <= 0) {
+            return avatar;
+        }
+        synchronized (mPending) {
+            List<Callback> callbacks = mPending.get(key);
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return null;
+            }
+            callbacks = new ArrayList<Callback>();
+            callbacks.add(callback);
+            mPending.put(key, callbacks);
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Avatar avatar = null;
+                try {
+                    Bitmap bitmap = decoder.decode();
+                    if (bitmap != null) {
+                        avatar = new Avatar(bitmap);
+                        mCache.put(key, avatar);
+                    }
+                } catch (Resources.NotFoundException e) {
+                    // no avatar
+                } catch (OutOfMemoryError e) {
+                    // no avatar
+                } finally {
+                    postDeliver(key, avatar);
+                }
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Always called once per decode, so pending callbacks never outlive it.
+     */
+    private void postDeliver(final Key key, final Avatar avatar) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                deliver(key, avatar);
+            }
+        });
+    }
+
+    private void deliver(Key key, Avatar avatar) {
+        List<Callback> callbacks;
+        synchronized (mPending) {
+            callbacks = mPending.remove(key);
+        }
+        if (callbacks == null || avatar == null) {
+            return;
+        }
+        for (Callback callback : callbacks) {
+            callback.onAvatarLoaded(avatar);
+        }
+    }
+
+    private static Object getSource(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            return ((BitmapDrawable) drawable).getBitmap();
+        }
+        Drawable.ConstantState state = drawable.getConstantState();
+        return state != null ? state : drawable;
+    }
+
+    private static Drawable getDrawableCopy(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            return drawable;
+        }
+        Drawable.ConstantState state = drawable.getConstantState();
+        return state != null ? state.newDrawable() : drawable;
+    }
+
+    private static Bitmap decodeResource(Resources resources, int resId, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, size);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, resId, options);
+        if (bitmap == null) {
+            Drawable drawable = resources.getDrawable(resId);
+            return drawable != null ? renderDrawable(drawable, size) : null;
+        }
+        return scale(bitmap, size);
+    }
+
+    private static Bitmap renderDrawable(Drawable drawable, int size) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            return bitmap != null ? scale(bitmap, size) : null;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, size, size);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private static Bitmap scale(Bitmap bitmap, int size) {
+        if (bitmap.getWidth() == size && bitmap.getHeight() == size) {
+            return bitmap;
+        }
+        return Bitmap.createScaledBitmap(bitmap, size, size, true);
+    }
+
+    private static int getSampleSize(int width, int height, int size) {
+        int sampleSize = 1;
+        while (width / (2 * sampleSize) >= size && height / (2 * sampleSize) >= size) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private interface Decoder {
+        Bitmap decode();
+    }
+
+    /**
+     * Resource ids are compared by value; other sources by identity through a weak reference, so the cache
+     * never keeps a caller's full-size bitmap or drawable alive.
+     */
+    private static final class Key {
+        private final int mResId;
+        private final WeakReference<Object> mSource;
+        private final int mHash;
+        private final int mSize;
+
+        Key(int resId, int size) {
+            mResId = resId;
+            mSource = null;
+            mHash = resId;
+            mSize = size;
+        }
+
+        Key(Object source, int size) {
+            mResId = 0;
+            mSource = new WeakReference<Object>(source);
+            mHash = System.identityHashCode(source);
+            mSize = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            if (mSize != key.mSize || mResId != key.mResId || (mSource == null) != (key.mSource == null)) {
+                return false;
+            }
+            if (mSource == null) {
+                return true;
+            }
+            Object source = mSource.get();
+            return source != null && source == key.mSource.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mHash + mSize;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.slippagemeter;
+
+import android.os.Process;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daemon threads at background priority, numbered after {@code name}.
+ */
+class BackgroundThreadFactory implements ThreadFactory {
+
+    private final String mName;
+    private final AtomicInteger mCount = new AtomicInteger();
+
+    BackgroundThreadFactory(String name) {
+        mName = name;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }
+        }, mName + "-" + mCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
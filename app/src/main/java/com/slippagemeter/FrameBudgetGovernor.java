@@ -0,0 +1,157 @@
+package com.slippagemeter;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Watches display frame times while meters draw and lowers their rendering quality one step at a time when
+ * frames overrun the budget, restoring it once there is headroom again. Share one governor between all meters
+ * of a screen. Main thread only.
+ */
+public class FrameBudgetGovernor implements Choreographer.FrameCallback {
+
+    public static final int QUALITY_FULL = 0;
+    /**
+     * Posted and smoothed updates are applied at most every other display frame.
+     */
+    public static final int QUALITY_CAPPED_RATE = 1;
+    /**
+     * Additionally draws the bubble without anti-aliasing.
+     */
+    public static final int QUALITY_NO_ANTI_ALIAS = 2;
+    /**
+     * Additionally skips the avatar.
+     */
+    public static final int QUALITY_NO_AVATAR = 3;
+    /**
+     * Additionally rounds slippage to {@link #COARSE_SLIPPAGE_STEP}, so small moves redraw nothing.
+     */
+    public static final int QUALITY_COARSE = 4;
+
+    public static final float COARSE_SLIPPAGE_STEP = 0.5f;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final float DEFAULT_REFRESH_RATE = 60;
+    private static final float OVERRUN_FACTOR = 1.5f;
+    private static final float HEADROOM_FACTOR = 1.1f;
+    private static final float SMOOTHING = 0.1f;
+    private static final int DEGRADE_FRAMES = 15;
+    private static final int RESTORE_FRAMES = 120;
+    private static final int IDLE_FRAMES = 30;
+    private static final int CAPPED_FRAME_INTERVAL = 2;
+
+    public interface Listener {
+        void onQualityChanged(int quality);
+    }
+
+    private final long mFrameIntervalNanos;
+    private final List<Listener> mListeners = new ArrayList<Listener>();
+    private int mQuality = QUALITY_FULL;
+    private boolean mRunning;
+    private long mLastFrameTimeNanos;
+    private float mAverageFrameNanos;
+    private int mOverrunFrames;
+    private int mHeadroomFrames;
+    private int mIdleFrames;
+
+    public FrameBudgetGovernor(Context context) {
+        mFrameIntervalNanos = getFrameIntervalNanos(context);
+    }
+
+    /**
+     * Display frame interval of the default display, assuming 60 Hz if it does not report a refresh rate.
+     */
+    static long getFrameIntervalNanos(Context context) {
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager != null ? windowManager.getDefaultDisplay().getRefreshRate() : 0;
+        if (refreshRate < 1) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        return (long) (NANOS_PER_SECOND / refreshRate);
+    }
+
+    public int getQuality() {
+        return mQuality;
+    }
+
+    public void addListener(Listener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Minimum time between two applied updates of one meter at the current quality.
+     */
+    long getMinUpdateIntervalNanos() {
+        return mQuality >= QUALITY_CAPPED_RATE ? CAPPED_FRAME_INTERVAL * mFrameIntervalNanos - mFrameIntervalNanos / 2 : 0;
+    }
+
+    float getSlippageStep() {
+        return mQuality >= QUALITY_COARSE ? COARSE_SLIPPAGE_STEP : 0;
+    }
+
+    /**
+     * Called by meters when they draw; frame times are only watched while something draws.
+     */
+    void onFrameDrawn() {
+        mIdleFrames = 0;
+        if (!mRunning) {
+            mRunning = true;
+            mLastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            onFrameInterval(frameTimeNanos - mLastFrameTimeNanos);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (++mIdleFrames > IDLE_FRAMES) {
+            mRunning = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private void onFrameInterval(long intervalNanos) {
+        if (mAverageFrameNanos == 0) {
+            mAverageFrameNanos = mFrameIntervalNanos;
+        }
+        mAverageFrameNanos += SMOOTHING * (intervalNanos - mAverageFrameNanos);
+        if (mAverageFrameNanos > OVERRUN_FACTOR * mFrameIntervalNanos) {
+            mHeadroomFrames = 0;
+            if (++mOverrunFrames >= DEGRADE_FRAMES && mQuality < QUALITY_COARSE) {
+                setQuality(mQuality + 1);
+            }
+        } else if (mAverageFrameNanos < HEADROOM_FACTOR * mFrameIntervalNanos) {
+            mOverrunFrames = 0;
+            if (++mHeadroomFrames >= RESTORE_FRAMES && mQuality > QUALITY_FULL) {
+                setQuality(mQuality - 1);
+            }
+        } else {
+            mOverrunFrames = 0;
+            mHeadroomFrames = 0;
+        }
+    }
+
+    private void setQuality(int quality) {
+        mQuality = quality;
+        mOverrunFrames = 0;
+        mHeadroomFrames = 0;
+        mAverageFrameNanos = mFrameIntervalNanos;
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onQualityChanged(quality);
+        }
+    }
+}
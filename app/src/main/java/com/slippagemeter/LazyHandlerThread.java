@@ -0,0 +1,29 @@
+package com.slippagemeter;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * Daemon {@link HandlerThread} started on the first call to {@link #getHandler()}, for work shared by all views.
+ */
+class LazyHandlerThread {
+
+    private final String mName;
+    private final int mPriority;
+    private Handler mHandler;
+
+    LazyHandlerThread(String name, int priority) {
+        mName = name;
+        mPriority = priority;
+    }
+
+    synchronized Handler getHandler() {
+        if (mHandler == null) {
+            HandlerThread thread = new HandlerThread(mName, mPriority);
+            thread.setDaemon(true);
+            thread.start();
+            mHandler = new Handler(thread.getLooper());
+        }
+        return mHandler;
+    }
+}
@@ -1,31 +1,101 @@
 package com.slippagemeter;
 
-import android.animation.ValueAnimator;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.v7.app.ActionBarActivity;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 
+import com.slippagemeter.core.TickReplayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
 
 public class MainActivity extends ActionBarActivity {
 
+    /**
+     * Path of a tick file to replay instead of the random walk.
+     */
+    public static final String EXTRA_TICK_FILE = "com.slippagemeter.extra.TICK_FILE";
+    /**
+     * Replay speed factor; 0 replays as fast as possible.
+     */
+    public static final String EXTRA_REPLAY_SPEED = "com.slippagemeter.extra.REPLAY_SPEED";
+
+    private static final String TAG = "MainActivity";
+    private static final long TICK_INTERVAL_MILLIS = 250;
+    private static final long SMOOTHING_TIME_MILLIS = 150;
+
+    private final Handler mHandler = new Handler();
+    private final Random mRandom = new Random();
+    private SlippageView mSlippageView;
+    private float mSlippage;
+    private Thread mReplayThread;
+
+    private final Runnable mTick = new Runnable() {
+        @Override
+        public void run() {
+            mSlippage = Math.max(-10, Math.min(10, mSlippage + (float) mRandom.nextGaussian()));
+            mSlippageView.setSlippage(mSlippage);
+            mHandler.postDelayed(this, TICK_INTERVAL_MILLIS);
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
-        final SlippageView slippageView = (SlippageView) findViewById(R.id.slippage);
-        ValueAnimator animator = ValueAnimator.ofFloat(10, -10);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        mSlippageView = (SlippageView) findViewById(R.id.slippage);
+        mSlippageView.setSmoothingTime(SMOOTHING_TIME_MILLIS);
+        //mSlippageView.setImageDrawable(getResources().getDrawable(R.drawable.defaultavatar));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        String tickFile = getIntent().getStringExtra(EXTRA_TICK_FILE);
+        if (tickFile != null) {
+            startReplay(new File(tickFile), getIntent().getFloatExtra(EXTRA_REPLAY_SPEED, TickReplayer.REAL_TIME));
+        } else {
+            mHandler.post(mTick);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mHandler.removeCallbacks(mTick);
+        if (mReplayThread != null) {
+            mReplayThread.interrupt();
+            mReplayThread = null;
+        }
+    }
+
+    private void startReplay(final File file, final float speed) {
+        final SlippageView slippageView = mSlippageView;
+        mReplayThread = new Thread(new Runnable() {
             @Override
-            public void onAnimationUpdate(final ValueAnimator animation) {
-                float value = (float) animation.getAnimatedValue();
-                slippageView.setSlippage(value);
-                slippageView.invalidate();
+            public void run() {
+                try {
+                    TickReplayer replayer = new TickReplayer(file);
+                    try {
+                        replayer.replay(new TickReplayer.Sink() {
+                            @Override
+                            public void onTick(final long timeNanos, final float slippage) {
+                                slippageView.postSlippage(slippage);
+                            }
+                        }, speed > 0 ? speed : TickReplayer.AS_FAST_AS_POSSIBLE);
+                    } finally {
+                        replayer.close();
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot replay " + file, e);
+                }
             }
-        });
-        animator.setDuration(10000);
-        animator.start();
-        //slippageView.setImageDrawable(getResources().getDrawable(R.drawable.defaultavatar));
+        }, "TickReplay");
+        mReplayThread.start();
     }
 
 
@@ -0,0 +1,148 @@
+package com.slippagemeter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Slippage bubbles of one style pre-rendered into a single bitmap, one sprite per label, so drawing a bubble is
+ * one drawBitmap call. Sprites are packed in rows and tinted with the colour of their label's value. Labels are
+ * added from zero outward until the memory budget is used up; the rest are left to the path renderer.
+ */
+class SlippageBubbleAtlas {
+
+    static final int DEFAULT_BUDGET_BYTES = 4 * 1024 * 1024;
+
+    private static final int MAX_WIDTH = 1024;
+    private static final int MAX_HEIGHT = 2048;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int PADDING = 2;
+
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(
+            new BackgroundThreadFactory("SlippageBubbleAtlas"));
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    interface Callback {
+        /**
+         * Called on the main thread with the atlas, or {@code null} if not even one sprite fits the budget.
+         */
+        void onAtlasBuilt(SlippageBubbleAtlas atlas);
+    }
+
+    private final Bitmap mBitmap;
+    private final int[] mSprites;
+    private final Rect mSource = new Rect();
+    private final RectF mDestination = new RectF();
+
+    private SlippageBubbleAtlas(Bitmap bitmap, int[] sprites) {
+        mBitmap = bitmap;
+        mSprites = sprites;
+    }
+
+    /**
+     * Renders the atlas for {@code style} on a background thread with a renderer of its own.
+     */
+    static void build(final Resources resources, final SlippageStyle style, final int budgetBytes, final Callback callback) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SlippageBubbleAtlas atlas = render(new SlippageRenderer(resources, style), budgetBytes);
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onAtlasBuilt(atlas);
+                    }
+                });
+            }
+        });
+    }
+
+    private static SlippageBubbleAtlas render(SlippageRenderer renderer, int budgetBytes) {
+        int count = renderer.getLabelCount();
+        int maxHeight = Math.min(MAX_HEIGHT, budgetBytes / (MAX_WIDTH * BYTES_PER_PIXEL));
+        int[] sprites = new int[6 * count];
+        RectF bounds = new RectF();
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        int width = 0;
+        for (int n = 0; n < count; n++) {
+            int i = getLabelIndex(n, count);
+            renderer.getSlippageBubbleBounds(i, bounds);
+            int left = (int) Math.floor(bounds.left) - PADDING;
+            int top = (int) Math.floor(bounds.top) - PADDING;
+            int spriteWidth = (int) Math.ceil(bounds.right) + PADDING - left;
+            int spriteHeight = (int) Math.ceil(bounds.bottom) + PADDING - top;
+            if (x + spriteWidth > MAX_WIDTH) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+            if (spriteWidth > MAX_WIDTH || y + spriteHeight > maxHeight) {
+                break;
+            }
+            sprites[6 * i] = x;
+            sprites[6 * i + 1] = y;
+            sprites[6 * i + 2] = spriteWidth;
+            sprites[6 * i + 3] = spriteHeight;
+            sprites[6 * i + 4] = left;
+            sprites[6 * i + 5] = top;
+            x += spriteWidth;
+            rowHeight = Math.max(rowHeight, spriteHeight);
+            width = Math.max(width, x);
+        }
+        int height = y + rowHeight;
+        if (width == 0 || height == 0) {
+            return null;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < count; i++) {
+            if (sprites[6 * i + 2] == 0) {
+                continue;
+            }
+            int saveCount = canvas.save();
+            canvas.translate(sprites[6 * i] - sprites[6 * i + 4], sprites[6 * i + 1] - sprites[6 * i + 5]);
+            canvas.clipRect(sprites[6 * i + 4], sprites[6 * i + 5],
+                    sprites[6 * i + 4] + sprites[6 * i + 2], sprites[6 * i + 5] + sprites[6 * i + 3]);
+            renderer.drawSlippageBubbleSprite(canvas, i);
+            canvas.restoreToCount(saveCount);
+        }
+        return new SlippageBubbleAtlas(bitmap, sprites);
+    }
+
+    /**
+     * Label indices ordered by distance from the middle label, which shows zero slippage.
+     */
+    private static int getLabelIndex(int n, int count) {
+        int middle = count / 2;
+        return (n & 1) == 0 ? middle + n / 2 : middle - (n + 1) / 2;
+    }
+
+    /**
+     * Draws the bubble of {@code labelIndex} anchored like the path-drawn bubble at ({@code x}, {@code y}) and
+     * returns {@code true}, or returns {@code false} if the label did not fit the atlas. Main thread only.
+     */
+    boolean draw(Canvas canvas, int labelIndex, int x, int y, Paint paint) {
+        int offset = 6 * labelIndex;
+        int width = mSprites[offset + 2];
+        int height = mSprites[offset + 3];
+        if (width == 0) {
+            return false;
+        }
+        mSource.set(mSprites[offset], mSprites[offset + 1], mSprites[offset] + width, mSprites[offset + 1] + height);
+        float left = x + mSprites[offset + 4];
+        float top = y + mSprites[offset + 5];
+        mDestination.set(left, top, left + width, top + height);
+        canvas.drawBitmap(mBitmap, mSource, mDestination, paint);
+        return true;
+    }
+}
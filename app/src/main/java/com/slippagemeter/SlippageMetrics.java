@@ -0,0 +1,175 @@
+package com.slippagemeter;
+
+import android.content.Context;
+import android.view.Choreographer;
+
+import com.slippagemeter.core.DurationHistogram;
+
+/**
+ * Low-overhead instrumentation for {@link SlippageView}: onDraw and onMeasure durations, tick-to-pixel latency
+ * and dropped display frames. One instance may be shared by many views. Recording happens on the main thread
+ * and never allocates; snapshots may be read from any thread. Nothing is recorded while disabled. Display frames
+ * are only watched while meters draw, so an idle screen is not woken up every frame.
+ */
+public class SlippageMetrics implements Choreographer.FrameCallback {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final int IDLE_FRAMES = 30;
+
+    public interface Listener {
+        /**
+         * Called on the main thread. {@code snapshot} is reused between calls.
+         */
+        void onMetrics(Snapshot snapshot);
+    }
+
+    private final long mFrameIntervalNanos;
+    private final DurationHistogram mDrawTime = new DurationHistogram();
+    private final DurationHistogram mMeasureTime = new DurationHistogram();
+    private final DurationHistogram mTickLatency = new DurationHistogram();
+    private final Snapshot mListenerSnapshot = new Snapshot();
+    private volatile boolean mEnabled;
+    private boolean mRunning;
+    private int mIdleFrames;
+    private long mFrameCount;
+    private long mDroppedFrameCount;
+    private long mLastFrameTimeNanos;
+    private Listener mListener;
+    private long mReportIntervalNanos;
+    private long mLastReportNanos;
+
+    public SlippageMetrics(Context context) {
+        mFrameIntervalNanos = FrameBudgetGovernor.getFrameIntervalNanos(context);
+    }
+
+    /**
+     * Starts or stops recording. Must be called on the main thread.
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled == mEnabled) {
+            return;
+        }
+        mEnabled = enabled;
+        if (!enabled && mRunning) {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Delivers a snapshot to {@code listener} at most every {@code intervalMillis} while enabled and meters
+     * draw. Must be called on the main thread; pass {@code null} to stop.
+     */
+    public void setListener(Listener listener, long intervalMillis) {
+        mListener = listener;
+        mReportIntervalNanos = intervalMillis * NANOS_PER_MILLI;
+        mLastReportNanos = System.nanoTime();
+    }
+
+    public void readSnapshot(Snapshot snapshot) {
+        mDrawTime.copyTo(snapshot.mDrawTime);
+        mMeasureTime.copyTo(snapshot.mMeasureTime);
+        mTickLatency.copyTo(snapshot.mTickLatency);
+        synchronized (this) {
+            snapshot.mFrameCount = mFrameCount;
+            snapshot.mDroppedFrameCount = mDroppedFrameCount;
+        }
+    }
+
+    public void reset() {
+        mDrawTime.clear();
+        mMeasureTime.clear();
+        mTickLatency.clear();
+        synchronized (this) {
+            mFrameCount = 0;
+            mDroppedFrameCount = 0;
+        }
+    }
+
+    /**
+     * Called by meters at the end of onDraw; also keeps display frames watched until they stop drawing.
+     */
+    void recordDraw(long nanos) {
+        mDrawTime.record(nanos);
+        mIdleFrames = 0;
+        if (!mRunning) {
+            mRunning = true;
+            mLastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void recordMeasure(long nanos) {
+        mMeasureTime.record(nanos);
+    }
+
+    void recordTickLatency(long nanos) {
+        mTickLatency.record(nanos);
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        if (!mEnabled) {
+            mRunning = false;
+            return;
+        }
+        if (mLastFrameTimeNanos != 0) {
+            long frames = (frameTimeNanos - mLastFrameTimeNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos;
+            synchronized (this) {
+                mFrameCount++;
+                if (frames > 1) {
+                    mDroppedFrameCount += frames - 1;
+                }
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (mListener != null && frameTimeNanos - mLastReportNanos >= mReportIntervalNanos) {
+            mLastReportNanos = frameTimeNanos;
+            readSnapshot(mListenerSnapshot);
+            mListener.onMetrics(mListenerSnapshot);
+        }
+        if (++mIdleFrames > IDLE_FRAMES) {
+            mRunning = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Copy of the recorded metrics taken by {@link #readSnapshot(Snapshot)}. Durations are in nanoseconds.
+     */
+    public static final class Snapshot {
+        private final DurationHistogram mDrawTime = new DurationHistogram();
+        private final DurationHistogram mMeasureTime = new DurationHistogram();
+        private final DurationHistogram mTickLatency = new DurationHistogram();
+        private long mFrameCount;
+        private long mDroppedFrameCount;
+
+        public DurationHistogram getDrawTime() {
+            return mDrawTime;
+        }
+
+        public DurationHistogram getMeasureTime() {
+            return mMeasureTime;
+        }
+
+        /**
+         * Time from setSlippage or postSlippage to the end of the onDraw that shows the value.
+         */
+        public DurationHistogram getTickLatency() {
+            return mTickLatency;
+        }
+
+        public long getFrameCount() {
+            return mFrameCount;
+        }
+
+        public long getDroppedFrameCount() {
+            return mDroppedFrameCount;
+        }
+    }
+}
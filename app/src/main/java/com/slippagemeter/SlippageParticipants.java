@@ -0,0 +1,293 @@
+package com.slippagemeter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import com.slippagemeter.core.ParticipantMarkers;
+import com.slippagemeter.core.SlippageScale;
+
+import java.util.Arrays;
+
+/**
+ * Markers of many participants left of the gradient line. Participants whose markers would overlap are drawn
+ * as one count badge. Avatars are copied into slots of one shared atlas bitmap, so every avatar is drawn from
+ * the same texture and the hardware renderer can merge them into one batch. Main thread only.
+ */
+class SlippageParticipants {
+
+    private static final int NO_SLOT = -1;
+    private static final int ATLAS_BUDGET_BYTES = 2 * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final View mView;
+    private final int mCapacity;
+    private final Drawable[] mAvatarDrawables;
+    private final ParticipantAvatarRequest[] mAvatarRequests;
+    private final int[] mSlots;
+    private ParticipantMarkers mMarkers;
+    private int[] mClusterBuckets;
+    private int[] mClusterCounts;
+    private int[] mClusterParticipants;
+    private int mClusterCount;
+    private boolean mClustersDirty = true;
+
+    private SlippageScale mScale;
+    private float mCenterX;
+    private float mRadius;
+    private int mSlotSize;
+    private int mSpanBuckets;
+    private Bitmap mAtlas;
+    private Canvas mAtlasCanvas;
+    private int mAtlasColumns;
+    private int[] mFreeSlots;
+    private int mFreeSlotCount;
+
+    private final Paint mAtlasPaint = new Paint();
+    private final Paint mSlotPaint = new Paint();
+    private final Paint mClearPaint = new Paint();
+    private final Paint mDotPaint = new Paint();
+    private final Paint mBadgePaint = new Paint();
+    private final Paint mBadgeTextPaint = new Paint();
+    private final Rect mSource = new Rect();
+    private final RectF mDestination = new RectF();
+    private final char[] mCountText = new char[10];
+
+    SlippageParticipants(View view, int capacity) {
+        mView = view;
+        mCapacity = capacity;
+        mAvatarDrawables = new Drawable[capacity];
+        mAvatarRequests = new ParticipantAvatarRequest[capacity];
+        mSlots = new int[capacity];
+        Arrays.fill(mSlots, NO_SLOT);
+        mAtlasPaint.setFilterBitmap(true);
+        mSlotPaint.setAntiAlias(true);
+        mClearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+        mDotPaint.setAntiAlias(true);
+        mBadgePaint.setAntiAlias(true);
+        mBadgeTextPaint.setAntiAlias(true);
+        mBadgeTextPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    int capacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Adopts the geometry and colours of {@code renderer}. Keeps every participant, re-bucketing them if the
+     * range changed, and reloads avatars if their size changed.
+     */
+    void setRenderer(SlippageRenderer renderer) {
+        SlippageStyle style = renderer.getStyle();
+        mScale = renderer.getLayout().getScale();
+        ParticipantMarkers markers = new ParticipantMarkers(style.getMaxValue(), mCapacity);
+        if (mMarkers != null) {
+            for (int id = 0; id < mCapacity; id++) {
+                if (mMarkers.contains(id)) {
+                    markers.set(id, mMarkers.get(id));
+                }
+            }
+        }
+        mMarkers = markers;
+        mClusterBuckets = new int[markers.getBucketCount()];
+        mClusterCounts = new int[markers.getBucketCount()];
+        mClusterParticipants = new int[markers.getBucketCount()];
+        mClustersDirty = true;
+
+        int slotSize = renderer.getAvatarImageSize();
+        mRadius = slotSize / 2f;
+        mCenterX = -style.getWidthLine() * 1.5f - mRadius;
+        float pixelsPerBucket = style.getLengthLine() / Math.max(1, markers.getBucketCount() - 1);
+        mSpanBuckets = (int) Math.ceil(2 * mRadius / pixelsPerBucket);
+        mDotPaint.setColor(style.getAvatarBubbleBackground());
+        mBadgePaint.setColor(style.getAvatarBubbleBackground());
+        mBadgeTextPaint.setColor(style.getSlippageTextColor());
+        mBadgeTextPaint.setTextSize(style.getPipsTextSize());
+        if (slotSize != mSlotSize) {
+            mSlotSize = slotSize;
+            resetAtlas();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the participant's marker moved.
+     */
+    boolean set(int id, float slippage) {
+        boolean moved = mMarkers.set(id, slippage);
+        mClustersDirty |= moved;
+        return moved;
+    }
+
+    boolean remove(int id) {
+        boolean removed = mMarkers.remove(id);
+        mClustersDirty |= removed;
+        return removed;
+    }
+
+    float getLeft() {
+        return mCenterX - mRadius - 1;
+    }
+
+    float getRight() {
+        return mCenterX + mRadius + 1;
+    }
+
+    void setAvatar(int id, Drawable drawable) {
+        mAvatarDrawables[id] = drawable;
+        loadAvatar(id);
+    }
+
+    private void loadAvatar(int id) {
+        if (mAvatarRequests[id] != null) {
+            mAvatarRequests[id].cancel();
+            mAvatarRequests[id] = null;
+        }
+        if (mAvatarDrawables[id] == null) {
+            releaseSlot(id);
+            return;
+        }
+        ParticipantAvatarRequest request = new ParticipantAvatarRequest(id);
+        Avatar avatar = AvatarLoader.getInstance().load(mAvatarDrawables[id], mSlotSize, request);
+        if (avatar != null) {
+            copyToAtlas(id, avatar);
+        } else {
+            mAvatarRequests[id] = request;
+        }
+    }
+
+    private void resetAtlas() {
+        mAtlas = null;
+        mAtlasCanvas = null;
+        Arrays.fill(mSlots, NO_SLOT);
+        if (mSlotSize <= 0) {
+            mFreeSlots = new int[0];
+            mFreeSlotCount = 0;
+            return;
+        }
+        int maxSlots = Math.max(1, ATLAS_BUDGET_BYTES / (BYTES_PER_PIXEL * mSlotSize * mSlotSize));
+        int slots = Math.min(mCapacity, maxSlots);
+        mAtlasColumns = (int) Math.ceil(Math.sqrt(slots));
+        mFreeSlots = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            mFreeSlots[i] = slots - 1 - i;
+        }
+        mFreeSlotCount = slots;
+        for (int id = 0; id < mCapacity; id++) {
+            if (mAvatarDrawables[id] != null) {
+                loadAvatar(id);
+            }
+        }
+    }
+
+    private void copyToAtlas(int id, Avatar avatar) {
+        int slot = mSlots[id];
+        if (slot == NO_SLOT) {
+            if (mFreeSlotCount == 0 || mSlotSize <= 0) {
+                return;
+            }
+            slot = mFreeSlots[--mFreeSlotCount];
+            mSlots[id] = slot;
+        }
+        if (mAtlas == null) {
+            int rows = (mFreeSlots.length + mAtlasColumns - 1) / mAtlasColumns;
+            mAtlas = Bitmap.createBitmap(mAtlasColumns * mSlotSize, rows * mSlotSize, Bitmap.Config.ARGB_8888);
+            mAtlasCanvas = new Canvas(mAtlas);
+        }
+        int left = getSlotLeft(slot);
+        int top = getSlotTop(slot);
+        mAtlasCanvas.drawRect(left, top, left + mSlotSize, top + mSlotSize, mClearPaint);
+        float size = avatar.getSize();
+        int count = mAtlasCanvas.save();
+        mAtlasCanvas.translate(left + (mSlotSize - size) / 2, top + (mSlotSize - size) / 2);
+        mSlotPaint.setShader(avatar.getShader());
+        mAtlasCanvas.drawCircle(size / 2, size / 2, size / 2, mSlotPaint);
+        mAtlasCanvas.restoreToCount(count);
+        mSlotPaint.setShader(null);
+        mClustersDirty = true;
+    }
+
+    private void releaseSlot(int id) {
+        if (mSlots[id] != NO_SLOT) {
+            mFreeSlots[mFreeSlotCount++] = mSlots[id];
+            mSlots[id] = NO_SLOT;
+            mClustersDirty = true;
+        }
+    }
+
+    private int getSlotLeft(int slot) {
+        return (slot % mAtlasColumns) * mSlotSize;
+    }
+
+    private int getSlotTop(int slot) {
+        return (slot / mAtlasColumns) * mSlotSize;
+    }
+
+    void draw(Canvas canvas) {
+        if (mMarkers.size() == 0) {
+            return;
+        }
+        if (mClustersDirty) {
+            mClusterCount = mMarkers.cluster(mSpanBuckets, mClusterBuckets, mClusterCounts, mClusterParticipants);
+            mClustersDirty = false;
+        }
+        for (int i = 0; i < mClusterCount; i++) {
+            float y = mScale.convertSlippageLevelToYCoordinate(mMarkers.getBucketSlippage(mClusterBuckets[i]));
+            int participant = mClusterParticipants[i];
+            if (participant >= 0 && mSlots[participant] != NO_SLOT && mAtlas != null) {
+                drawAvatar(canvas, mSlots[participant], y);
+            } else if (participant >= 0) {
+                canvas.drawCircle(mCenterX, y, mRadius / 2, mDotPaint);
+            } else {
+                drawBadge(canvas, mClusterCounts[i], y);
+            }
+        }
+    }
+
+    private void drawAvatar(Canvas canvas, int slot, float y) {
+        int left = getSlotLeft(slot);
+        int top = getSlotTop(slot);
+        mSource.set(left, top, left + mSlotSize, top + mSlotSize);
+        mDestination.set(mCenterX - mRadius, y - mRadius, mCenterX + mRadius, y + mRadius);
+        canvas.drawBitmap(mAtlas, mSource, mDestination, mAtlasPaint);
+    }
+
+    private void drawBadge(Canvas canvas, int count, float y) {
+        canvas.drawCircle(mCenterX, y, mRadius, mBadgePaint);
+        int start = mCountText.length;
+        do {
+            mCountText[--start] = (char) ('0' + count % 10);
+            count /= 10;
+        } while (count > 0 && start > 0);
+        canvas.drawText(mCountText, start, mCountText.length - start, mCenterX, y + mBadgeTextPaint.getTextSize() / 3, mBadgeTextPaint);
+    }
+
+    private class ParticipantAvatarRequest implements AvatarLoader.Callback {
+        private final int mId;
+        private boolean mCancelled;
+
+        ParticipantAvatarRequest(int id) {
+            mId = id;
+        }
+
+        void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public void onAvatarLoaded(final Avatar avatar) {
+            if (!mCancelled) {
+                mAvatarRequests[mId] = null;
+                if (avatar != null) {
+                    copyToAtlas(mId, avatar);
+                    mView.invalidate();
+                }
+            }
+        }
+    }
+}
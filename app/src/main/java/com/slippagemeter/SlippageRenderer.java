@@ -0,0 +1,663 @@
+package com.slippagemeter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.ComposeShader;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import com.slippagemeter.core.BubbleGeometry;
+import com.slippagemeter.core.GradientColorTable;
+import com.slippagemeter.core.SlippageFrame;
+import com.slippagemeter.core.SlippageLabels;
+import com.slippagemeter.core.SlippageLayout;
+import com.slippagemeter.core.SlippageScale;
+import com.slippagemeter.core.SlippageThresholds;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws a slippage meter for one {@link SlippageStyle}. Coordinates are relative to the top of the gradient
+ * line with x = 0 on its center, so one renderer serves views of any width. A renderer keeps scratch state
+ * and must only be used from one thread; {@link #obtain(Resources, SlippageStyle)} shares renderers between
+ * views on the main thread.
+ */
+class SlippageRenderer {
+
+    private static final int ENVELOPE_ALPHA = 0x66;
+    private static final int THRESHOLD_ALPHA = 0x99;
+    private static final float[] GRADIENT_POSITIONS = new float[]{0.1f, 0.4f, 0.6f, 0.95f};
+    private static final int MAX_SHARED_RENDERERS = 16;
+
+    private static final Cache sMainThreadRenderers = new Cache();
+
+    private final SlippageStyle mStyle;
+    private final float mLengthLine;
+    private final float mWidthLine;
+    private final float mAvatarRadius;
+    private final float mAvatarBubbleStrokeWidth;
+    private final float mSlippageBubbleStrokeWidth;
+    private final float mSlippageTextPadding;
+
+    private Paint mGradientPaint;
+    private Paint mAvatarPaint;
+    private Paint mCircleAvatarBackgroundPaint;
+    private Paint mAvatarImagePaint;
+    private Paint mSlippageTextPaint;
+    private Paint mPipsTextPaint;
+    private Paint mSlippageBubbleBackgroundPaint;
+    private Paint mSlippageBubblePaint;
+    private Paint mSlippageBubbleBevelPaint;
+    private Paint mEnvelopePaint;
+    private Paint mStatisticsPaint;
+    private Paint mThresholdPaint;
+    private Paint mCrossedThresholdPaint;
+    private Paint mTrailPaint;
+    private Shader mTrailShader;
+
+    private final int[] mColors;
+    private final GradientColorTable mGradientColorTable;
+    private final SlippageLabels mSlippageLabels;
+    private final SlippageLayout mLayout;
+    private final String mPipsText;
+    private final float mPipsTextLength;
+
+    private final RectF mArcRect = new RectF();
+    private final Path mAvatarBubblePath = new Path();
+    private final Path[] mSlippageBubblePaths;
+    private final Path[] mSlippageBubbleBevelPaths;
+    private final Matrix mTrailMatrix = new Matrix();
+    private final float[] mBubbleBounds = new float[4];
+    private final Paint mBubbleAtlasPaint = new Paint();
+    private SlippageBubbleAtlas mBubbleAtlas;
+    private int mBubbleAtlasUsers;
+    private int mBubbleAtlasGeneration;
+    private final Canvas mStaticLayerCanvas = new Canvas();
+    private Bitmap mStaticLayer;
+
+    static SlippageRenderer obtain(Resources resources, SlippageStyle style) {
+        return sMainThreadRenderers.obtain(resources, style);
+    }
+
+    /**
+     * The most recently used renderers by style, for views drawing on one thread. A renderer measured with the
+     * pips text of another locale is rebuilt.
+     */
+    static final class Cache {
+        private final Map<SlippageStyle, SlippageRenderer> mRenderers =
+                new LinkedHashMap<SlippageStyle, SlippageRenderer>(MAX_SHARED_RENDERERS, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<SlippageStyle, SlippageRenderer> eldest) {
+                        return size() > MAX_SHARED_RENDERERS;
+                    }
+                };
+
+        SlippageRenderer obtain(Resources resources, SlippageStyle style) {
+            SlippageRenderer renderer = mRenderers.get(style);
+            if (renderer == null || !renderer.mPipsText.equals(resources.getString(R.string.pips))) {
+                renderer = new SlippageRenderer(resources, style);
+                mRenderers.put(style, renderer);
+            }
+            return renderer;
+        }
+    }
+
+    SlippageRenderer(Resources resources, SlippageStyle style) {
+        mStyle = style;
+        mLengthLine = style.getLengthLine();
+        mWidthLine = style.getWidthLine();
+        mAvatarRadius = style.getAvatarRadius();
+        mAvatarBubbleStrokeWidth = style.getAvatarBubbleStrokeWidth();
+        mSlippageBubbleStrokeWidth = style.getSlippageBubbleStrokeWidth();
+        mSlippageTextPadding = style.getSlippageTextPadding();
+        mColors = new int[]{style.getMaxGreenColor(), style.getMinGreenColor(), style.getMinRedColor(), style.getMaxRedColor()};
+        mGradientColorTable = new GradientColorTable(mColors, GRADIENT_POSITIONS, mLengthLine);
+        initGradientPaint();
+        initAvatarPaint();
+        initCircleAvatarBackgroundPaint();
+        initAvatarImagePaint();
+        initSlippageTextPaint();
+        initPipsTextPaint();
+        initSlippageBubbleBackgroundPaint();
+        initSlippageBubblePaint();
+        initSlippageBubbleBevelPaint();
+        initEnvelopePaint();
+        initStatisticsPaint();
+        initThresholdPaints();
+        mPipsText = resources.getString(R.string.pips);
+        mPipsTextLength = mPipsTextPaint.measureText(mPipsText, 0, mPipsText.length());
+        mSlippageLabels = new SlippageLabels(style.getMaxValue(), new PaintTextMeasurer(mSlippageTextPaint));
+        mSlippageBubblePaths = new Path[mSlippageLabels.size()];
+        mSlippageBubbleBevelPaths = new Path[mSlippageLabels.size()];
+        mLayout = new SlippageLayout(
+                new SlippageScale(style.getMaxValue(), mLengthLine),
+                mSlippageLabels,
+                mGradientColorTable,
+                mWidthLine,
+                mSlippageTextPadding,
+                mSlippageBubbleStrokeWidth,
+                mPipsTextLength
+        );
+        buildAvatarBubblePath();
+    }
+
+    SlippageStyle getStyle() {
+        return mStyle;
+    }
+
+    private void initGradientPaint() {
+        mGradientPaint = new Paint();
+        mGradientPaint.setAntiAlias(true);
+        mGradientPaint.setStyle(Paint.Style.FILL);
+        mGradientPaint.setShader(getGradientShader());
+    }
+
+    private Shader getGradientShader() {
+        return new LinearGradient(0, 0, 0, mLengthLine, mColors, GRADIENT_POSITIONS, Shader.TileMode.CLAMP);
+    }
+
+    private void initAvatarPaint() {
+        mAvatarPaint = new Paint();
+        mAvatarPaint.setAntiAlias(true);
+        mAvatarPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        mAvatarPaint.setStrokeWidth(0);
+        mAvatarPaint.setColor(mStyle.getAvatarBubbleBackground());
+    }
+
+    private void initCircleAvatarBackgroundPaint() {
+        mCircleAvatarBackgroundPaint = new Paint();
+        mCircleAvatarBackgroundPaint.setAntiAlias(true);
+        mCircleAvatarBackgroundPaint.setColor(mStyle.getAvatarBubbleCircleBackground());
+    }
+
+    private void initAvatarImagePaint() {
+        mAvatarImagePaint = new Paint();
+        mAvatarImagePaint.setAntiAlias(true);
+        mAvatarImagePaint.setFilterBitmap(true);
+    }
+
+    private void initSlippageTextPaint() {
+        mSlippageTextPaint = new Paint();
+        mSlippageTextPaint.setAntiAlias(true);
+        mSlippageTextPaint.setColor(mStyle.getSlippageTextColor());
+        mSlippageTextPaint.setTextSize(mStyle.getSlippageTextSize());
+    }
+
+    private void initPipsTextPaint() {
+        mPipsTextPaint = new Paint();
+        mPipsTextPaint.setAntiAlias(true);
+        mPipsTextPaint.setColor(mStyle.getSlippageTextColor());
+        mPipsTextPaint.setTextSize(mStyle.getPipsTextSize());
+    }
+
+    private void initSlippageBubblePaint() {
+        mSlippageBubblePaint = new Paint();
+        mSlippageBubblePaint.setAntiAlias(true);
+        mSlippageBubblePaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        mSlippageBubblePaint.setStrokeWidth(mSlippageBubbleStrokeWidth);
+    }
+
+    private void initSlippageBubbleBevelPaint() {
+        mSlippageBubbleBevelPaint = new Paint();
+        mSlippageBubbleBevelPaint.setAntiAlias(true);
+        mSlippageBubbleBevelPaint.setStyle(Paint.Style.FILL);
+    }
+
+    private void initEnvelopePaint() {
+        mEnvelopePaint = new Paint();
+        mEnvelopePaint.setStyle(Paint.Style.FILL);
+        mEnvelopePaint.setColor(mStyle.getSlippageTextColor());
+        mEnvelopePaint.setAlpha(ENVELOPE_ALPHA);
+    }
+
+    private void initStatisticsPaint() {
+        mStatisticsPaint = new Paint();
+        mStatisticsPaint.setStyle(Paint.Style.STROKE);
+        mStatisticsPaint.setStrokeWidth(Math.max(1, mWidthLine / 3));
+        mStatisticsPaint.setColor(mStyle.getSlippageTextColor());
+    }
+
+    private void initThresholdPaints() {
+        mThresholdPaint = new Paint();
+        mThresholdPaint.setStyle(Paint.Style.STROKE);
+        mThresholdPaint.setStrokeWidth(Math.max(1, mWidthLine / 3));
+        mThresholdPaint.setColor(mStyle.getSlippageTextColor());
+        mThresholdPaint.setAlpha(THRESHOLD_ALPHA);
+        mCrossedThresholdPaint = new Paint();
+        mCrossedThresholdPaint.setStyle(Paint.Style.STROKE);
+        mCrossedThresholdPaint.setStrokeWidth(Math.max(2, 2 * mWidthLine / 3));
+        mCrossedThresholdPaint.setColor(mStyle.getMaxRedColor());
+    }
+
+    private void initTrailPaint() {
+        int[] colors = new int[mGradientColorTable.size()];
+        for (int y = 0; y < colors.length; y++) {
+            colors[y] = mGradientColorTable.get(y);
+        }
+        Bitmap colorBitmap = Bitmap.createBitmap(colors, 1, colors.length, Bitmap.Config.ARGB_8888);
+        Shader color = new BitmapShader(colorBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        Shader fade = new LinearGradient(0, 0, 1, 0, 0x00000000, 0xff000000, Shader.TileMode.CLAMP);
+        mTrailShader = new ComposeShader(color, fade, PorterDuff.Mode.DST_IN);
+        mTrailPaint = new Paint();
+        mTrailPaint.setAntiAlias(true);
+        mTrailPaint.setStyle(Paint.Style.STROKE);
+        mTrailPaint.setStrokeWidth(Math.max(1, mWidthLine / 3));
+        mTrailPaint.setShader(mTrailShader);
+    }
+
+    private void initSlippageBubbleBackgroundPaint() {
+        mSlippageBubbleBackgroundPaint = new Paint();
+        mSlippageBubbleBackgroundPaint.setAntiAlias(true);
+        mSlippageBubbleBackgroundPaint.setColor(mStyle.getSlippageBubbleBackgroundColor());
+    }
+
+    float getLengthLine() {
+        return mLengthLine;
+    }
+
+    /**
+     * Geometry of this renderer's style; unlike the renderer it may be used from any thread.
+     */
+    SlippageLayout getLayout() {
+        return mLayout;
+    }
+
+    private float getAvatarBubbleWidth() {
+        return BubbleGeometry.getAvatarBubbleWidth(mAvatarRadius);
+    }
+
+    private float getLeftXGradientLine() {
+        return -mWidthLine / 2;
+    }
+
+    private float getRightXGradientLine() {
+        return mWidthLine / 2;
+    }
+
+    void drawStaticLayer(Canvas canvas) {
+        if (mStaticLayer == null) {
+            mStaticLayer = buildStaticLayer();
+        }
+        if (mStaticLayer != null) {
+            canvas.drawBitmap(mStaticLayer, getStaticLayerLeft(), 0, null);
+        }
+    }
+
+    private int getStaticLayerLeft() {
+        return (int) Math.floor(getLeftXBubbleAvatar()) - 1;
+    }
+
+    private Bitmap buildStaticLayer() {
+        int left = getStaticLayerLeft();
+        int width = (int) Math.ceil(getRightXGradientLine()) + 1 - left;
+        int height = (int) Math.ceil(mLengthLine);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        Bitmap layer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = mStaticLayerCanvas;
+        canvas.setBitmap(layer);
+        int count = canvas.save();
+        canvas.translate(-left, 0);
+        drawLine(canvas);
+        drawAvatarBubble(canvas);
+        drawCircleBackgroundUnderAvatar(canvas);
+        canvas.restoreToCount(count);
+        canvas.setBitmap(null);
+        return layer;
+    }
+
+    private void drawLine(Canvas canvas) {
+        canvas.drawRect(getLeftXGradientLine(), 0, getRightXGradientLine(), mLengthLine, mGradientPaint);
+    }
+
+    private void buildAvatarBubblePath() {
+        Path path = mAvatarBubblePath;
+        path.reset();
+        path.moveTo(getLeftXGradientLine(), getBottomYBubbleAvatar());
+        mArcRect.set(getLeftXBubbleAvatar(), getTopYBubbleAvatar(), getRightXBubbleAvatar(), getBottomYBubbleAvatar());
+        path.arcTo(mArcRect, -30, -240, false);
+    }
+
+    private void drawAvatarBubble(Canvas canvas) {
+        canvas.drawPath(mAvatarBubblePath, mAvatarPaint);
+    }
+
+    private float getLeftXBubbleAvatar() {
+        return getLeftXGradientLine() - getAvatarBubbleWidth();
+    }
+
+    private float getRightXBubbleAvatar() {
+        return 2 * mAvatarRadius + getLeftXGradientLine() - getAvatarBubbleWidth();
+    }
+
+    private float getTopYBubbleAvatar() {
+        return getYGradientLineCenter() - 2 * mAvatarRadius;
+    }
+
+    private float getBottomYBubbleAvatar() {
+        return getYGradientLineCenter();
+    }
+
+    private float getYGradientLineCenter() {
+        return mLengthLine / 2;
+    }
+
+    private void drawCircleBackgroundUnderAvatar(Canvas canvas) {
+        float xCircleCenter = getXCenterCircleBackgroundUnderAvatar();
+        float yCircleCenter = getYCenterCircleBackgroundUnderAvatar();
+        float radius = mAvatarRadius - mAvatarBubbleStrokeWidth;
+        canvas.drawCircle(xCircleCenter, yCircleCenter, radius, mCircleAvatarBackgroundPaint);
+    }
+
+    private float getXCenterCircleBackgroundUnderAvatar() {
+        return getLeftXBubbleAvatar() + mAvatarRadius;
+    }
+
+    private float getYCenterCircleBackgroundUnderAvatar() {
+        return getYGradientLineCenter() - mAvatarRadius;
+    }
+
+    void drawAvatar(Canvas canvas, Avatar avatar) {
+        float size = avatar.getSize();
+        float left = getXCenterCircleBackgroundUnderAvatar() - size / 2;
+        float top = getYCenterCircleBackgroundUnderAvatar() - size / 2;
+        mAvatarImagePaint.setShader(avatar.getShader());
+        int count = canvas.save();
+        canvas.translate(left, top);
+        canvas.drawCircle(size / 2, size / 2, size / 2, mAvatarImagePaint);
+        canvas.restoreToCount(count);
+    }
+
+    int getAvatarImageSize() {
+        return getAvatarImageSize(mStyle);
+    }
+
+    static int getAvatarImageSize(SlippageStyle style) {
+        return (int) (2 * style.getAvatarRadius() - style.getAvatarBubbleStrokeWidth());
+    }
+
+    /**
+     * Draws the trail between {@code left} and {@code right} in one drawLines call, coloured by the gradient
+     * and fading out toward the oldest point.
+     */
+    void drawTrail(Canvas canvas, SlippageTrail trail, float left, float right) {
+        int count = trail.getCount();
+        if (count == 0) {
+            return;
+        }
+        if (mTrailPaint == null) {
+            initTrailPaint();
+        }
+        float translation = trail.getTranslation(right);
+        mTrailMatrix.setScale(right - left, 1);
+        mTrailMatrix.postTranslate(left - translation, 0);
+        mTrailShader.setLocalMatrix(mTrailMatrix);
+        int saveCount = canvas.save();
+        canvas.translate(translation, 0);
+        canvas.drawLines(trail.getSegments(), trail.getOffset(), count, mTrailPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    float getTrailRight() {
+        return getLeftXGradientLine();
+    }
+
+    /**
+     * Lays out one line across the gradient line per level of {@code thresholds} into {@code lines}, which is
+     * reused if it is large enough. Levels outside the meter range are drawn at its ends.
+     */
+    float[] buildThresholdLines(SlippageThresholds thresholds, float[] lines) {
+        int count = thresholds.size();
+        if (lines == null || lines.length < 4 * count) {
+            lines = new float[4 * count];
+        }
+        SlippageScale scale = mLayout.getScale();
+        float left = mLayout.getStatisticsMarkerLeft();
+        float right = mLayout.getStatisticsMarkerRight();
+        for (int i = 0; i < count; i++) {
+            float y = scale.convertSlippageLevelToYCoordinate(scale.clampSlippage(thresholds.getLevel(i)));
+            lines[4 * i] = left;
+            lines[4 * i + 1] = y;
+            lines[4 * i + 2] = right;
+            lines[4 * i + 3] = y;
+        }
+        return lines;
+    }
+
+    /**
+     * Draws {@code count} levels laid out by {@link #buildThresholdLines(SlippageThresholds, float[])},
+     * highlighting the run [{@code crossedStart}, {@code crossedEnd}), in at most three drawLines calls.
+     */
+    void drawThresholds(Canvas canvas, float[] lines, int count, int crossedStart, int crossedEnd) {
+        if (crossedStart > 0) {
+            canvas.drawLines(lines, 0, 4 * crossedStart, mThresholdPaint);
+        }
+        if (crossedEnd > crossedStart) {
+            canvas.drawLines(lines, 4 * crossedStart, 4 * (crossedEnd - crossedStart), mCrossedThresholdPaint);
+        }
+        if (count > crossedEnd) {
+            canvas.drawLines(lines, 4 * crossedEnd, 4 * (count - crossedEnd), mThresholdPaint);
+        }
+    }
+
+    /**
+     * @param antiAlias whether to anti-alias the bubble paths
+     * @param sprites    whether to draw the bubble from the atlas once it is built
+     */
+    void drawFrame(Canvas canvas, SlippageFrame frame, boolean antiAlias, boolean sprites) {
+        float[] coordinates = frame.getCoordinates();
+        if (frame.hasEnvelope()) {
+            canvas.drawRect(
+                    coordinates[SlippageFrame.ENVELOPE_LEFT],
+                    coordinates[SlippageFrame.ENVELOPE_TOP],
+                    coordinates[SlippageFrame.ENVELOPE_RIGHT],
+                    coordinates[SlippageFrame.ENVELOPE_BOTTOM],
+                    mEnvelopePaint
+            );
+        }
+        if (frame.getMarkerLineCount() > 0) {
+            canvas.drawLines(coordinates, SlippageFrame.MARKER_LINES, frame.getMarkerLineCount(), mStatisticsPaint);
+        }
+        mSlippageBubbleBevelPaint.setAntiAlias(antiAlias);
+        mSlippageBubblePaint.setAntiAlias(antiAlias);
+        mSlippageBubbleBackgroundPaint.setAntiAlias(antiAlias);
+        drawSlippageLevelBubble(canvas, frame.getBubblePixelY(), frame.getLabelIndex(), frame.getBubbleColor(), sprites);
+    }
+
+    /**
+     * Sprites and paths are both anchored at the pixel nearest the line, so switching between them does not
+     * shift the bubble.
+     */
+    private void drawSlippageLevelBubble(Canvas canvas, int pixelY, int labelIndex, int color, boolean sprites) {
+        int pixelX = Math.round(getRightXGradientLine());
+        if (sprites && mBubbleAtlas != null
+                && mBubbleAtlas.draw(canvas, labelIndex, pixelX, pixelY, mBubbleAtlasPaint)) {
+            return;
+        }
+        int count = canvas.save();
+        canvas.translate(pixelX, pixelY);
+        drawSlippageBubble(canvas, labelIndex, color);
+        canvas.restoreToCount(count);
+    }
+
+    /**
+     * Draws the bubble of {@code labelIndex} for the atlas, anchored at the origin and tinted for its value.
+     */
+    void drawSlippageBubbleSprite(Canvas canvas, int labelIndex) {
+        SlippageScale scale = mLayout.getScale();
+        float y = scale.convertSlippageLevelToYCoordinate(scale.clampSlippage(mSlippageLabels.getSlippage(labelIndex)));
+        drawSlippageBubble(canvas, labelIndex, mGradientColorTable.get(Math.round(y)));
+    }
+
+    private void drawSlippageBubble(Canvas canvas, int labelIndex, int color) {
+        int slippagePadding = (int) mSlippageTextPadding;
+        float slippageTextLength = mSlippageLabels.getWidth(labelIndex);
+        int slippageTextHeight = mSlippageLabels.getHeight(labelIndex) + slippagePadding;
+
+        float bubbleBevelLength = getBubbleBevel(slippageTextHeight / 2);
+        float x = getBubbleX(bubbleBevelLength, slippageTextHeight);
+        float y = getBubbleY(0);
+
+        Path bubblePath = mSlippageBubblePaths[labelIndex];
+        Path bevelPath = mSlippageBubbleBevelPaths[labelIndex];
+        if (bubblePath == null) {
+            bubblePath = new Path();
+            bevelPath = new Path();
+            buildBubbleBevelPath(bevelPath, 0, y, bubbleBevelLength, labelIndex);
+            buildSlippageBubblePath(bubblePath, x, y, slippageTextLength + mPipsTextLength, slippageTextHeight);
+            mSlippageBubblePaths[labelIndex] = bubblePath;
+            mSlippageBubbleBevelPaths[labelIndex] = bevelPath;
+        }
+
+        mSlippageBubbleBevelPaint.setColor(color);
+        mSlippageBubblePaint.setColor(color);
+
+        canvas.drawPath(bevelPath, mSlippageBubbleBevelPaint);
+        canvas.drawPath(bubblePath, mSlippageBubblePaint);
+        canvas.drawPath(bubblePath, mSlippageBubbleBackgroundPaint);
+        drawSlippageTextLevelInBubble(canvas, mSlippageLabels.getText(labelIndex), x, y - slippagePadding / 2);
+        drawPips(canvas, x + slippageTextLength, y - 2 * slippagePadding / 3);
+    }
+
+    int getLabelCount() {
+        return mSlippageLabels.size();
+    }
+
+    /**
+     * Bounds of the bubble of {@code labelIndex} relative to its anchor on the right edge of the line.
+     */
+    void getSlippageBubbleBounds(int labelIndex, RectF bounds) {
+        BubbleGeometry.getBubbleBounds(
+                0,
+                0,
+                mSlippageLabels.getHeight(labelIndex),
+                mSlippageTextPadding,
+                mSlippageLabels.getWidth(labelIndex) + mPipsTextLength,
+                mSlippageBubbleStrokeWidth,
+                mBubbleBounds
+        );
+        bounds.set(mBubbleBounds[0], mBubbleBounds[1], mBubbleBounds[2], mBubbleBounds[3]);
+    }
+
+    /**
+     * Starts building the bubble atlas for this style when the first view uses it. Main thread only.
+     */
+    void acquireBubbleAtlas(Resources resources) {
+        if (mBubbleAtlasUsers++ > 0) {
+            return;
+        }
+        final int generation = ++mBubbleAtlasGeneration;
+        SlippageBubbleAtlas.build(resources, mStyle, SlippageBubbleAtlas.DEFAULT_BUDGET_BYTES, new SlippageBubbleAtlas.Callback() {
+            @Override
+            public void onAtlasBuilt(final SlippageBubbleAtlas atlas) {
+                if (generation == mBubbleAtlasGeneration) {
+                    mBubbleAtlas = atlas;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the bubble atlas when the last view stops using it, including one still being built. The bitmap is
+     * left to the garbage collector rather than recycled, since a display list may still draw it. Main thread only.
+     */
+    void releaseBubbleAtlas() {
+        if (--mBubbleAtlasUsers > 0) {
+            return;
+        }
+        mBubbleAtlasGeneration++;
+        mBubbleAtlas = null;
+    }
+
+    private float getBubbleBevel(float radius) {
+        return BubbleGeometry.getBubbleBevel(radius);
+    }
+
+    private float getBubbleX(float x, float bubbleHeight) {
+        return BubbleGeometry.getBubbleX(x, bubbleHeight, mSlippageBubbleStrokeWidth);
+    }
+
+    private float getBubbleY(float y) {
+        return BubbleGeometry.getBubbleY(y, mSlippageBubbleStrokeWidth);
+    }
+
+    private void buildSlippageBubblePath(Path path, float x, float y, float length, float height) {
+        y = y - height;
+        path.reset();
+        drawStartSegment(x - height / 2, y, height, path);
+        path.lineTo(x, y + height);
+        drawEndSegment(x, y, length, height, path);
+        path.lineTo(x, y);
+    }
+
+    private void drawSlippageTextLevelInBubble(Canvas canvas, char[] slippageText, float x, float y) {
+        canvas.drawText(slippageText, 0, slippageText.length, x, y, mSlippageTextPaint);
+    }
+
+    private void drawPips(Canvas canvas, float x, float y) {
+        canvas.drawText(mPipsText, x, y, mPipsTextPaint);
+    }
+
+    private void drawStartSegment(float x, float y, float height, Path path) {
+        drawSegment(x, y, height + x, height + y, 90, 180, path);
+    }
+
+    private void drawEndSegment(float x, float y, float length, float height, Path path) {
+        float left = x + length - height / 2;
+        float right = height + left;
+        float bottom = height + y;
+        drawSegment(left, y, right, bottom, 90, -180, path);
+    }
+
+    private void drawSegment(
+            float left,
+            float top,
+            float right,
+            float bottom,
+            float startAngle,
+            float sweepAngle,
+            Path path
+    ) {
+        mArcRect.set(left, top, right, bottom);
+        path.arcTo(mArcRect, startAngle, sweepAngle);
+    }
+
+    private void buildBubbleBevelPath(Path path, float x, float y, float bubbleBevelLength, int labelIndex) {
+        int bubbleHeight = mLayout.getBubbleHeight(labelIndex);
+        path.reset();
+        path.moveTo(x, y + mSlippageBubbleStrokeWidth / 2);
+        path.lineTo(x + bubbleBevelLength + bubbleHeight / 2, y + mSlippageBubbleStrokeWidth / 2);
+        mArcRect.set(x + mSlippageBubbleStrokeWidth / 2, y - bubbleHeight + 2 * mSlippageBubbleStrokeWidth, x + bubbleBevelLength + bubbleHeight / 2, y);
+        path.arcTo(mArcRect, -BubbleGeometry.BEVEL_ANGLE, 0, false);
+    }
+
+    private static class PaintTextMeasurer implements SlippageLabels.TextMeasurer {
+        private final Paint mPaint;
+        private final Rect mBounds = new Rect();
+
+        PaintTextMeasurer(Paint paint) {
+            mPaint = paint;
+        }
+
+        @Override
+        public float measureWidth(char[] text) {
+            return mPaint.measureText(text, 0, text.length);
+        }
+
+        @Override
+        public int measureHeight(char[] text) {
+            mPaint.getTextBounds(text, 0, text.length, mBounds);
+            return mBounds.height();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.slippagemeter;
+
+import android.view.Choreographer;
+
+import com.slippagemeter.core.CriticallyDampedSpring;
+
+/**
+ * Moves the bubble of a {@link SlippageView} toward the latest target with a critically damped spring, one
+ * step per display frame. Frames are only requested while the spring is moving. Main thread only.
+ */
+class SlippageSmoothing implements Choreographer.FrameCallback {
+
+    private static final float NANOS_PER_SECOND = 1e9f;
+    private static final float MAX_STEP_SECONDS = 0.1f;
+
+    private final SlippageView mView;
+    private CriticallyDampedSpring mSpring;
+    private boolean mRunning;
+    private long mLastFrameTimeNanos;
+    private long mTickTimeNanos;
+
+    SlippageSmoothing(SlippageView view) {
+        mView = view;
+    }
+
+    boolean isEnabled() {
+        return mSpring != null;
+    }
+
+    /**
+     * Enables smoothing with the given time in milliseconds, or disables it with 0, jumping to the target.
+     */
+    void setSmoothingTime(long millis) {
+        if (millis <= 0) {
+            stop();
+            mSpring = null;
+        } else if (mSpring == null) {
+            mSpring = new CriticallyDampedSpring(millis / 1000f);
+        } else {
+            mSpring.setSmoothingTime(millis / 1000f);
+        }
+    }
+
+    /**
+     * Returns the target of a running animation, or {@code current} when the bubble is at rest.
+     */
+    float getTarget(float current) {
+        return mRunning ? mSpring.getTarget() : current;
+    }
+
+    /**
+     * Retargets the spring, starting from {@code current} if it is at rest.
+     */
+    void setTarget(float target, float current, long tickTimeNanos) {
+        if (!mRunning) {
+            mSpring.snapTo(current);
+        }
+        mSpring.setTarget(target);
+        if (mTickTimeNanos == 0) {
+            mTickTimeNanos = tickTimeNanos;
+        }
+        if (mRunning) {
+            return;
+        }
+        if (mSpring.isAtRest()) {
+            apply();
+        } else {
+            mRunning = true;
+            mLastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Stops a running animation and jumps to its target.
+     */
+    void stop() {
+        if (!mRunning) {
+            return;
+        }
+        Choreographer.getInstance().removeFrameCallback(this);
+        mRunning = false;
+        mSpring.snapTo(mSpring.getTarget());
+        apply();
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (!mView.isUpdateDue(frameTimeNanos)) {
+            Choreographer.getInstance().postFrameCallback(this);
+            return;
+        }
+        float seconds = mLastFrameTimeNanos == 0 ? 0 : (frameTimeNanos - mLastFrameTimeNanos) / NANOS_PER_SECOND;
+        mLastFrameTimeNanos = frameTimeNanos;
+        boolean settled = mSpring.step(Math.min(seconds, MAX_STEP_SECONDS));
+        apply();
+        if (settled) {
+            mRunning = false;
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private void apply() {
+        long tickTime = mTickTimeNanos;
+        mTickTimeNanos = 0;
+        mView.applySmoothedSlippage(mSpring.getPosition(), tickTime);
+    }
+}
@@ -0,0 +1,198 @@
+package com.slippagemeter;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.slippagemeter.core.SlippageFrame;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders meter snapshots to PNG files without a view, for reports. Each worker thread draws with a renderer of
+ * its own into bitmaps taken from a pool, and at most twice as many snapshots as there are threads are queued,
+ * so memory stays bounded however many are requested. Build the style in code with {@link SlippageStyle.Builder}.
+ */
+public class SlippageSnapshotRenderer {
+
+    private static final int PNG_QUALITY = 100;
+    private static final int QUEUED_PER_THREAD = 2;
+
+    private final Resources mResources;
+    private final SlippageStyle mStyle;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mAvatarSize;
+    private final ExecutorService mExecutor;
+    private final Semaphore mQueueSlots;
+    private final BlockingQueue<Bitmap> mBitmaps;
+    private volatile Avatar mAvatar;
+
+    private final ThreadLocal<Worker> mWorkers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker(new SlippageRenderer(mResources, mStyle));
+        }
+    };
+
+    public SlippageSnapshotRenderer(Resources resources, SlippageStyle style, int width, int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Thread count should be positive: " + threadCount);
+        }
+        mResources = resources;
+        mStyle = style;
+        mWidth = width;
+        mHeight = (int) Math.ceil(style.getLengthLine())
+                + new SlippageRenderer(resources, style).getLayout().getMaxBubbleHeight();
+        mAvatarSize = SlippageRenderer.getAvatarImageSize(style);
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new BackgroundThreadFactory("SlippageSnapshot")) {
+            @Override
+            protected void terminated() {
+                recycleBitmaps();
+            }
+        };
+        mQueueSlots = new Semaphore(QUEUED_PER_THREAD * threadCount);
+        mBitmaps = new ArrayBlockingQueue<Bitmap>(threadCount);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Draws {@code bitmap} as the avatar of later snapshots. Pass {@code null} to leave it out.
+     */
+    public void setAvatar(Bitmap bitmap) {
+        if (bitmap == null) {
+            mAvatar = null;
+            return;
+        }
+        mAvatar = new Avatar(bitmap.getWidth() == mAvatarSize && bitmap.getHeight() == mAvatarSize
+                ? bitmap : Bitmap.createScaledBitmap(bitmap, mAvatarSize, mAvatarSize, true));
+    }
+
+    /**
+     * Queues a snapshot of {@code slippage} with the envelope [{@code min}, {@code max}] to be written to
+     * {@code file}. Blocks while the queue is full, so call it from a background thread.
+     */
+    public Future<File> render(final float slippage, final float min, final float max, final File file)
+            throws InterruptedException {
+        mQueueSlots.acquire();
+        try {
+            return mExecutor.submit(new Callable<File>() {
+                @Override
+                public File call() throws IOException {
+                    try {
+                        mWorkers.get().render(slippage, min, max, file);
+                        return file;
+                    } finally {
+                        mQueueSlots.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            mQueueSlots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Finishes queued snapshots and stops the worker threads, then recycles the pooled bitmaps.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    private Bitmap obtainBitmap() {
+        Bitmap bitmap = mBitmaps.poll();
+        if (bitmap == null) {
+            return Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    private void recycleBitmap(Bitmap bitmap) {
+        if (!mBitmaps.offer(bitmap)) {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Called once the last worker has stopped, so no bitmap is in use.
+     */
+    private void recycleBitmaps() {
+        Bitmap bitmap;
+        while ((bitmap = mBitmaps.poll()) != null) {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Drawing state of one thread.
+     */
+    private class Worker {
+        private final SlippageRenderer mRenderer;
+        private final SlippageFrame mFrame = new SlippageFrame();
+        private final Canvas mCanvas = new Canvas();
+
+        Worker(SlippageRenderer renderer) {
+            mRenderer = renderer;
+        }
+
+        void render(float slippage, float min, float max, File file) throws IOException {
+            mRenderer.getLayout().layout(slippage, min, max, null, mFrame);
+            Bitmap bitmap = obtainBitmap();
+            try {
+                draw(bitmap);
+                write(bitmap, file);
+            } finally {
+                recycleBitmap(bitmap);
+            }
+        }
+
+        private void draw(Bitmap bitmap) {
+            mCanvas.setBitmap(bitmap);
+            int count = mCanvas.save();
+            mCanvas.translate(mWidth / 2, mHeight - mRenderer.getLengthLine());
+            mRenderer.drawStaticLayer(mCanvas);
+            Avatar avatar = mAvatar;
+            if (avatar != null) {
+                mRenderer.drawAvatar(mCanvas, avatar);
+            }
+            mRenderer.drawFrame(mCanvas, mFrame, true, false);
+            mCanvas.restoreToCount(count);
+            mCanvas.setBitmap(null);
+        }
+
+        private void write(Bitmap bitmap, File file) throws IOException {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                if (!bitmap.compress(Bitmap.CompressFormat.PNG, PNG_QUALITY, out)) {
+                    throw new IOException("Could not encode " + file);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
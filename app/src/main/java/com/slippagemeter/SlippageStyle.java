@@ -0,0 +1,368 @@
+package com.slippagemeter;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.util.AttributeSet;
+
+/**
+ * Immutable appearance of a {@link SlippageView}. Views with equal styles share one renderer, so a grid of
+ * meters pays for paints, gradients, labels and avatar bitmaps once.
+ */
+public final class SlippageStyle {
+
+    private static final float MAX_DEF_VALUE = 10;
+
+    private final float mLengthLine;
+    private final float mWidthLine;
+    private final int mMinGreenColor;
+    private final int mMaxGreenColor;
+    private final int mMinRedColor;
+    private final int mMaxRedColor;
+    private final float mMaxValue;
+    private final float mAvatarRadius;
+    private final int mAvatarBubbleBackground;
+    private final int mAvatarBubbleCircleBackground;
+    private final float mAvatarBubbleStrokeWidth;
+    private final int mDefaultAvatarRes;
+    private final float mSlippageTextSize;
+    private final float mPipsTextSize;
+    private final int mSlippageTextColor;
+    private final float mSlippageBubbleStrokeWidth;
+    private final int mSlippageBubbleBackgroundColor;
+    private final float mSlippageTextPadding;
+
+    private SlippageStyle(Builder builder) {
+        mLengthLine = builder.mLengthLine;
+        mWidthLine = builder.mWidthLine;
+        mMinGreenColor = builder.mMinGreenColor;
+        mMaxGreenColor = builder.mMaxGreenColor;
+        mMinRedColor = builder.mMinRedColor;
+        mMaxRedColor = builder.mMaxRedColor;
+        mMaxValue = builder.mMaxValue;
+        mAvatarRadius = builder.mAvatarRadius;
+        mAvatarBubbleBackground = builder.mAvatarBubbleBackground;
+        mAvatarBubbleCircleBackground = builder.mAvatarBubbleCircleBackground;
+        mAvatarBubbleStrokeWidth = builder.mAvatarBubbleStrokeWidth;
+        mDefaultAvatarRes = builder.mDefaultAvatarRes;
+        mSlippageTextSize = builder.mSlippageTextSize;
+        mPipsTextSize = builder.mPipsTextSize;
+        mSlippageTextColor = builder.mSlippageTextColor;
+        mSlippageBubbleStrokeWidth = builder.mSlippageBubbleStrokeWidth;
+        mSlippageBubbleBackgroundColor = builder.mSlippageBubbleBackgroundColor;
+        mSlippageTextPadding = builder.mSlippageTextPadding;
+    }
+
+    public static SlippageStyle fromAttributes(Context context, AttributeSet attrs) {
+        Builder builder = new Builder();
+        TypedArray array = null;
+        try {
+            array = context.obtainStyledAttributes(attrs, R.styleable.SlippageView);
+            float scale = array.getFloat(R.styleable.SlippageView_scale, 1);
+            builder.setLengthLine(scale * array.getDimension(R.styleable.SlippageView_lengthLine, 0))
+                    .setWidthLine(scale * array.getDimension(R.styleable.SlippageView_widthLine, 0))
+                    .setMinGreenColor(array.getColor(R.styleable.SlippageView_minGreen, Color.WHITE))
+                    .setMaxGreenColor(array.getColor(R.styleable.SlippageView_maxGreen, Color.WHITE))
+                    .setMinRedColor(array.getColor(R.styleable.SlippageView_minRed, Color.WHITE))
+                    .setMaxRedColor(array.getColor(R.styleable.SlippageView_maxRed, Color.WHITE))
+                    .setMaxValue(array.getFloat(R.styleable.SlippageView_maxValue, MAX_DEF_VALUE))
+                    .setAvatarRadius(scale * array.getDimension(R.styleable.SlippageView_avatarRadius, 0))
+                    .setAvatarBubbleBackground(array.getColor(R.styleable.SlippageView_avatarBubbleBackground, Color.WHITE))
+                    .setAvatarBubbleCircleBackground(array.getColor(R.styleable.SlippageView_avatarBubbleCircleBackground, Color.BLACK))
+                    .setAvatarBubbleStrokeWidth(array.getDimension(R.styleable.SlippageView_avatarBubbleStrokeWidth, 0))
+                    .setDefaultAvatarRes(array.getResourceId(R.styleable.SlippageView_defaultAvatar, 0))
+                    .setSlippageTextSize(scale * array.getDimension(R.styleable.SlippageView_slippageTextSize, 0))
+                    .setPipsTextSize(scale * array.getDimension(R.styleable.SlippageView_pipsTextSize, 0))
+                    .setSlippageTextColor(array.getColor(R.styleable.SlippageView_slippageTextColor, Color.WHITE))
+                    .setSlippageBubbleStrokeWidth(array.getDimension(R.styleable.SlippageView_slippageBubbleStrokeWidth, 0))
+                    .setSlippageBubbleBackgroundColor(array.getColor(R.styleable.SlippageView_slippageBubbleBackgroundColor, Color.BLACK))
+                    .setSlippageTextPadding(scale * array.getDimension(R.styleable.SlippageView_slippageTextPadding, 0));
+        } finally {
+            if (array != null) {
+                array.recycle();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * The style of a meter inflated with {@code attrs}, or the default style for a meter created in code.
+     */
+    static SlippageStyle obtain(Context context, AttributeSet attrs) {
+        return attrs != null ? fromAttributes(context, attrs) : new Builder().build();
+    }
+
+    void checkSlippage(float slippage) {
+        if (Float.compare(slippage, mMaxValue) > 0) {
+            throw new IllegalArgumentException("Your slippage is out of range: " + slippage + " > " + mMaxValue);
+        }
+    }
+
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    public float getLengthLine() {
+        return mLengthLine;
+    }
+
+    public float getWidthLine() {
+        return mWidthLine;
+    }
+
+    public int getMinGreenColor() {
+        return mMinGreenColor;
+    }
+
+    public int getMaxGreenColor() {
+        return mMaxGreenColor;
+    }
+
+    public int getMinRedColor() {
+        return mMinRedColor;
+    }
+
+    public int getMaxRedColor() {
+        return mMaxRedColor;
+    }
+
+    public float getMaxValue() {
+        return mMaxValue;
+    }
+
+    public float getAvatarRadius() {
+        return mAvatarRadius;
+    }
+
+    public int getAvatarBubbleBackground() {
+        return mAvatarBubbleBackground;
+    }
+
+    public int getAvatarBubbleCircleBackground() {
+        return mAvatarBubbleCircleBackground;
+    }
+
+    public float getAvatarBubbleStrokeWidth() {
+        return mAvatarBubbleStrokeWidth;
+    }
+
+    public int getDefaultAvatarRes() {
+        return mDefaultAvatarRes;
+    }
+
+    public float getSlippageTextSize() {
+        return mSlippageTextSize;
+    }
+
+    public float getPipsTextSize() {
+        return mPipsTextSize;
+    }
+
+    public int getSlippageTextColor() {
+        return mSlippageTextColor;
+    }
+
+    public float getSlippageBubbleStrokeWidth() {
+        return mSlippageBubbleStrokeWidth;
+    }
+
+    public int getSlippageBubbleBackgroundColor() {
+        return mSlippageBubbleBackgroundColor;
+    }
+
+    public float getSlippageTextPadding() {
+        return mSlippageTextPadding;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SlippageStyle)) {
+            return false;
+        }
+        SlippageStyle that = (SlippageStyle) o;
+        return Float.compare(that.mLengthLine, mLengthLine) == 0
+                && Float.compare(that.mWidthLine, mWidthLine) == 0
+                && that.mMinGreenColor == mMinGreenColor
+                && that.mMaxGreenColor == mMaxGreenColor
+                && that.mMinRedColor == mMinRedColor
+                && that.mMaxRedColor == mMaxRedColor
+                && Float.compare(that.mMaxValue, mMaxValue) == 0
+                && Float.compare(that.mAvatarRadius, mAvatarRadius) == 0
+                && that.mAvatarBubbleBackground == mAvatarBubbleBackground
+                && that.mAvatarBubbleCircleBackground == mAvatarBubbleCircleBackground
+                && Float.compare(that.mAvatarBubbleStrokeWidth, mAvatarBubbleStrokeWidth) == 0
+                && that.mDefaultAvatarRes == mDefaultAvatarRes
+                && Float.compare(that.mSlippageTextSize, mSlippageTextSize) == 0
+                && Float.compare(that.mPipsTextSize, mPipsTextSize) == 0
+                && that.mSlippageTextColor == mSlippageTextColor
+                && Float.compare(that.mSlippageBubbleStrokeWidth, mSlippageBubbleStrokeWidth) == 0
+                && that.mSlippageBubbleBackgroundColor == mSlippageBubbleBackgroundColor
+                && Float.compare(that.mSlippageTextPadding, mSlippageTextPadding) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(mLengthLine);
+        result = 31 * result + Float.floatToIntBits(mWidthLine);
+        result = 31 * result + mMinGreenColor;
+        result = 31 * result + mMaxGreenColor;
+        result = 31 * result + mMinRedColor;
+        result = 31 * result + mMaxRedColor;
+        result = 31 * result + Float.floatToIntBits(mMaxValue);
+        result = 31 * result + Float.floatToIntBits(mAvatarRadius);
+        result = 31 * result + mAvatarBubbleBackground;
+        result = 31 * result + mAvatarBubbleCircleBackground;
+        result = 31 * result + Float.floatToIntBits(mAvatarBubbleStrokeWidth);
+        result = 31 * result + mDefaultAvatarRes;
+        result = 31 * result + Float.floatToIntBits(mSlippageTextSize);
+        result = 31 * result + Float.floatToIntBits(mPipsTextSize);
+        result = 31 * result + mSlippageTextColor;
+        result = 31 * result + Float.floatToIntBits(mSlippageBubbleStrokeWidth);
+        result = 31 * result + mSlippageBubbleBackgroundColor;
+        result = 31 * result + Float.floatToIntBits(mSlippageTextPadding);
+        return result;
+    }
+
+    public static final class Builder {
+
+        private float mLengthLine;
+        private float mWidthLine;
+        private int mMinGreenColor = Color.WHITE;
+        private int mMaxGreenColor = Color.WHITE;
+        private int mMinRedColor = Color.WHITE;
+        private int mMaxRedColor = Color.WHITE;
+        private float mMaxValue = MAX_DEF_VALUE;
+        private float mAvatarRadius;
+        private int mAvatarBubbleBackground = Color.WHITE;
+        private int mAvatarBubbleCircleBackground = Color.BLACK;
+        private float mAvatarBubbleStrokeWidth;
+        private int mDefaultAvatarRes;
+        private float mSlippageTextSize;
+        private float mPipsTextSize;
+        private int mSlippageTextColor = Color.WHITE;
+        private float mSlippageBubbleStrokeWidth;
+        private int mSlippageBubbleBackgroundColor = Color.BLACK;
+        private float mSlippageTextPadding;
+
+        public Builder() {
+        }
+
+        private Builder(SlippageStyle style) {
+            mLengthLine = style.mLengthLine;
+            mWidthLine = style.mWidthLine;
+            mMinGreenColor = style.mMinGreenColor;
+            mMaxGreenColor = style.mMaxGreenColor;
+            mMinRedColor = style.mMinRedColor;
+            mMaxRedColor = style.mMaxRedColor;
+            mMaxValue = style.mMaxValue;
+            mAvatarRadius = style.mAvatarRadius;
+            mAvatarBubbleBackground = style.mAvatarBubbleBackground;
+            mAvatarBubbleCircleBackground = style.mAvatarBubbleCircleBackground;
+            mAvatarBubbleStrokeWidth = style.mAvatarBubbleStrokeWidth;
+            mDefaultAvatarRes = style.mDefaultAvatarRes;
+            mSlippageTextSize = style.mSlippageTextSize;
+            mPipsTextSize = style.mPipsTextSize;
+            mSlippageTextColor = style.mSlippageTextColor;
+            mSlippageBubbleStrokeWidth = style.mSlippageBubbleStrokeWidth;
+            mSlippageBubbleBackgroundColor = style.mSlippageBubbleBackgroundColor;
+            mSlippageTextPadding = style.mSlippageTextPadding;
+        }
+
+        public Builder setLengthLine(float lengthLine) {
+            mLengthLine = lengthLine;
+            return this;
+        }
+
+        public Builder setWidthLine(float widthLine) {
+            mWidthLine = widthLine;
+            return this;
+        }
+
+        public Builder setMinGreenColor(int minGreenColor) {
+            mMinGreenColor = minGreenColor;
+            return this;
+        }
+
+        public Builder setMaxGreenColor(int maxGreenColor) {
+            mMaxGreenColor = maxGreenColor;
+            return this;
+        }
+
+        public Builder setMinRedColor(int minRedColor) {
+            mMinRedColor = minRedColor;
+            return this;
+        }
+
+        public Builder setMaxRedColor(int maxRedColor) {
+            mMaxRedColor = maxRedColor;
+            return this;
+        }
+
+        public Builder setMaxValue(float maxValue) {
+            mMaxValue = maxValue;
+            return this;
+        }
+
+        public Builder setAvatarRadius(float avatarRadius) {
+            mAvatarRadius = avatarRadius;
+            return this;
+        }
+
+        public Builder setAvatarBubbleBackground(int avatarBubbleBackground) {
+            mAvatarBubbleBackground = avatarBubbleBackground;
+            return this;
+        }
+
+        public Builder setAvatarBubbleCircleBackground(int avatarBubbleCircleBackground) {
+            mAvatarBubbleCircleBackground = avatarBubbleCircleBackground;
+            return this;
+        }
+
+        public Builder setAvatarBubbleStrokeWidth(float avatarBubbleStrokeWidth) {
+            mAvatarBubbleStrokeWidth = avatarBubbleStrokeWidth;
+            return this;
+        }
+
+        public Builder setDefaultAvatarRes(int defaultAvatarRes) {
+            mDefaultAvatarRes = defaultAvatarRes;
+            return this;
+        }
+
+        public Builder setSlippageTextSize(float slippageTextSize) {
+            mSlippageTextSize = slippageTextSize;
+            return this;
+        }
+
+        public Builder setPipsTextSize(float pipsTextSize) {
+            mPipsTextSize = pipsTextSize;
+            return this;
+        }
+
+        public Builder setSlippageTextColor(int slippageTextColor) {
+            mSlippageTextColor = slippageTextColor;
+            return this;
+        }
+
+        public Builder setSlippageBubbleStrokeWidth(float slippageBubbleStrokeWidth) {
+            mSlippageBubbleStrokeWidth = slippageBubbleStrokeWidth;
+            return this;
+        }
+
+        public Builder setSlippageBubbleBackgroundColor(int slippageBubbleBackgroundColor) {
+            mSlippageBubbleBackgroundColor = slippageBubbleBackgroundColor;
+            return this;
+        }
+
+        public Builder setSlippageTextPadding(float slippageTextPadding) {
+            mSlippageTextPadding = slippageTextPadding;
+            return this;
+        }
+
+        public SlippageStyle build() {
+            return new SlippageStyle(this);
+        }
+    }
+}
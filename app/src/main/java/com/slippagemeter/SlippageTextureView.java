@@ -0,0 +1,222 @@
+package com.slippagemeter;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.graphics.drawable.Drawable;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.TextureView;
+import android.view.View;
+
+import com.slippagemeter.core.SlippageFrame;
+import com.slippagemeter.core.TickAccumulator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Slippage meter drawn on a shared render thread instead of the main thread. Values may be posted from any
+ * thread; the render thread lays out and draws the latest of them once per display frame with renderers
+ * shared by style between texture views, so a busy main thread does not hold the meter back. The bubble is always drawn with paths.
+ */
+public class SlippageTextureView extends TextureView implements TextureView.SurfaceTextureListener {
+
+    private static final LazyHandlerThread sRenderThread =
+            new LazyHandlerThread("SlippageRender", Process.THREAD_PRIORITY_DISPLAY);
+    /**
+     * Renderers shared by all texture views; only used on the render thread.
+     */
+    private static final SlippageRenderer.Cache sRenderThreadRenderers = new SlippageRenderer.Cache();
+
+    private volatile SlippageStyle mStyle;
+    private final AvatarBinding mAvatar = new AvatarBinding(getResources(), new AvatarBinding.Listener() {
+        @Override
+        public void onAvatarChanged() {
+            requestRender();
+        }
+    });
+    private volatile int mBubbleHeight;
+
+    private final TickAccumulator mAccumulator = new TickAccumulator();
+    private final AtomicBoolean mRenderPending = new AtomicBoolean();
+    private final Object mSurfaceLock = new Object();
+    private boolean mSurfaceAvailable;
+    private final RenderLoop mRenderLoop = new RenderLoop();
+
+    public SlippageTextureView(final Context context) {
+        super(context);
+        init(context, null);
+    }
+
+    public SlippageTextureView(final Context context, final AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs);
+    }
+
+    public SlippageTextureView(final Context context, final AttributeSet attrs, final int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs);
+    }
+
+    private void init(Context context, AttributeSet attrs) {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+        applyStyle(SlippageStyle.obtain(context, attrs));
+    }
+
+    public SlippageStyle getStyle() {
+        return mStyle;
+    }
+
+    public void setStyle(final SlippageStyle style) {
+        if (style.equals(mStyle)) {
+            return;
+        }
+        applyStyle(style);
+        requestLayout();
+        requestRender();
+    }
+
+    private void applyStyle(SlippageStyle style) {
+        mStyle = style;
+        mBubbleHeight = getMainRenderer().getLayout().getMaxBubbleHeight();
+        mAvatar.setStyle(style, getMainRenderer().getAvatarImageSize());
+    }
+
+    /**
+     * Shared renderer of the current style, only used on the main thread for measuring.
+     */
+    private SlippageRenderer getMainRenderer() {
+        return SlippageRenderer.obtain(getResources(), mStyle);
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        int width = getMeasuredWidth();
+        setMeasuredDimension(View.resolveSize(width, widthMeasureSpec),
+                (int) (getMainRenderer().getLengthLine() + mBubbleHeight));
+    }
+
+    /**
+     * Shows {@code drawable} as the avatar once it is scaled on a background thread. Pass {@code null} to
+     * return to the style's default avatar.
+     */
+    public void setImageDrawable(final Drawable drawable) {
+        mAvatar.setDrawable(drawable);
+    }
+
+    public void setSlippage(float slippage) {
+        mStyle.checkSlippage(slippage);
+        postSlippage(slippage);
+    }
+
+    /**
+     * Thread-safe. Only the latest value posted before the next display frame is drawn, clamped to the meter
+     * range, with the envelope of all values posted in between.
+     */
+    public void postSlippage(float slippage) {
+        if (Float.isNaN(slippage)) {
+            return;
+        }
+        mAccumulator.offer(slippage);
+        requestRender();
+    }
+
+    private void requestRender() {
+        if (mRenderPending.compareAndSet(false, true)) {
+            sRenderThread.getHandler().post(mRenderLoop);
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(final SurfaceTexture surface, final int width, final int height) {
+        synchronized (mSurfaceLock) {
+            mSurfaceAvailable = true;
+        }
+        mRenderLoop.setSize(width);
+        requestRender();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(final SurfaceTexture surface, final int width, final int height) {
+        mRenderLoop.setSize(width);
+        requestRender();
+    }
+
+    /**
+     * Waits for a frame being drawn, so the surface is never drawn to after it is released.
+     */
+    @Override
+    public boolean onSurfaceTextureDestroyed(final SurfaceTexture surface) {
+        synchronized (mSurfaceLock) {
+            mSurfaceAvailable = false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(final SurfaceTexture surface) {
+    }
+
+    /**
+     * Owns everything drawn on the render thread. Posted to the render thread, it waits for the next vsync
+     * of that thread's choreographer and draws the whole meter.
+     */
+    private class RenderLoop implements Runnable, Choreographer.FrameCallback {
+        private final float[] mTick = new float[3];
+        private final SlippageFrame mFrame = new SlippageFrame();
+        private SlippageRenderer mRenderer;
+        private volatile int mWidth;
+
+        void setSize(int width) {
+            mWidth = width;
+        }
+
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(final long frameTimeNanos) {
+            mRenderPending.set(false);
+            SlippageStyle style = mStyle;
+            boolean layout = false;
+            if (mRenderer == null || !mRenderer.getStyle().equals(style)) {
+                mRenderer = sRenderThreadRenderers.obtain(getResources(), style);
+                layout = true;
+            }
+            layout |= mAccumulator.drain(mTick);
+            if (layout) {
+                mRenderer.getLayout().layout(mTick[0], mTick[1], mTick[2], null, mFrame);
+            }
+            synchronized (mSurfaceLock) {
+                if (mSurfaceAvailable) {
+                    draw();
+                }
+            }
+        }
+
+        private void draw() {
+            Canvas canvas = lockCanvas();
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+                canvas.translate(mWidth / 2, mBubbleHeight);
+                mRenderer.drawStaticLayer(canvas);
+                // Safe across threads: an Avatar is immutable and this renderer has its own paint.
+                Avatar avatar = mAvatar.getAvatar();
+                if (avatar != null) {
+                    mRenderer.drawAvatar(canvas, avatar);
+                }
+                mRenderer.drawFrame(canvas, mFrame, true, false);
+            } finally {
+                unlockCanvasAndPost(canvas);
+            }
+        }
+    }
+}
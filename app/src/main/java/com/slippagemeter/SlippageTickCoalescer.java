@@ -0,0 +1,114 @@
+package com.slippagemeter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.view.Choreographer;
+
+import com.slippagemeter.core.SlippageFrame;
+import com.slippagemeter.core.SlippageLayout;
+import com.slippagemeter.core.SlippageStatistics;
+import com.slippagemeter.core.TickAccumulator;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the latest, minimum and maximum slippage offered from any thread, lays them out into a
+ * {@link SlippageFrame} on a shared layout thread and hands the frame to the view once per display frame.
+ * Frames cycle between the layout thread, the ready slot and the view, so steady state allocates nothing.
+ */
+class SlippageTickCoalescer implements Choreographer.FrameCallback, Runnable {
+
+    private static final LazyHandlerThread sLayoutThread =
+            new LazyHandlerThread("SlippageLayout", Process.THREAD_PRIORITY_DISPLAY);
+
+    private final SlippageView mView;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final TickAccumulator mAccumulator = new TickAccumulator();
+    private final AtomicBoolean mLayoutPending = new AtomicBoolean();
+    private final AtomicBoolean mFramePending = new AtomicBoolean();
+    private final AtomicLong mFirstTickNanos = new AtomicLong();
+    private final AtomicReference<SlippageFrame> mReadyFrame = new AtomicReference<SlippageFrame>();
+    private final AtomicReference<SlippageFrame> mFreeFrame = new AtomicReference<SlippageFrame>();
+    private final float[] mTick = new float[3];
+    private final float[] mStatisticsMarkers = new float[SlippageStatistics.MARKER_COUNT];
+    private SlippageFrame mLayoutFrame;
+
+    private final Runnable mLayoutTask = new Runnable() {
+        @Override
+        public void run() {
+            layoutFrame();
+        }
+    };
+
+    SlippageTickCoalescer(SlippageView view) {
+        mView = view;
+    }
+
+    /**
+     * @param timed whether to remember when the first tick of the next frame arrived, for latency metrics
+     */
+    void offer(float slippage, boolean timed) {
+        if (Float.isNaN(slippage)) {
+            return;
+        }
+        if (timed && mFirstTickNanos.get() == 0) {
+            mFirstTickNanos.compareAndSet(0, System.nanoTime());
+        }
+        mAccumulator.offer(slippage);
+        if (mLayoutPending.compareAndSet(false, true)) {
+            sLayoutThread.getHandler().post(mLayoutTask);
+        }
+    }
+
+    private void layoutFrame() {
+        mLayoutPending.set(false);
+        if (!mAccumulator.drain(mTick)) {
+            return;
+        }
+        SlippageFrame frame = mLayoutFrame;
+        if (frame == null) {
+            frame = mFreeFrame.getAndSet(null);
+            if (frame == null) {
+                frame = new SlippageFrame();
+            }
+        }
+        SlippageLayout layout = mView.getLayout();
+        SlippageStatistics statistics = mView.getStatistics();
+        float[] markers = null;
+        if (statistics != null) {
+            statistics.readMarkers(mStatisticsMarkers);
+            markers = mStatisticsMarkers;
+        }
+        layout.layout(mTick[0], mTick[1], mTick[2], markers, mView.getSlippageStep(), frame);
+        frame.setTickTimeNanos(mFirstTickNanos.get());
+        mLayoutFrame = mReadyFrame.getAndSet(frame);
+        if (mFramePending.compareAndSet(false, true)) {
+            mMainHandler.post(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(final long frameTimeNanos) {
+        if (!mView.isUpdateDue(frameTimeNanos)) {
+            Choreographer.getInstance().postFrameCallback(this);
+            return;
+        }
+        mFramePending.set(false);
+        SlippageFrame frame = mReadyFrame.getAndSet(null);
+        if (frame != null) {
+            long tickTime = frame.getTickTimeNanos();
+            mFreeFrame.set(mView.applyFrame(frame));
+            if (tickTime != 0) {
+                mFirstTickNanos.compareAndSet(tickTime, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.slippagemeter;
+
+import com.slippagemeter.core.SlippageHistory;
+import com.slippagemeter.core.SlippageScale;
+
+/**
+ * Line segments of the history trail. Every point is stored twice, {@code capacity} slots apart, so the latest
+ * points always form one contiguous run of segments; the x coordinates are fixed per slot and the run is
+ * shifted into place when drawn. Adding a point updates four floats; only a new style or size rebuilds all.
+ */
+class SlippageTrail {
+
+    private final int mCapacity;
+    private final float[] mSegments;
+    private SlippageScale mScale;
+    private float mSpacing;
+    private int mNewest;
+    private int mCount;
+
+    SlippageTrail(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Trail should keep at least two points: " + capacity);
+        }
+        mCapacity = capacity;
+        mSegments = new float[4 * (2 * capacity - 1)];
+        mNewest = capacity - 1;
+    }
+
+    void rebuild(SlippageHistory history, SlippageScale scale, float width) {
+        mScale = scale;
+        mSpacing = width / (mCapacity - 1);
+        for (int i = 0; i < 2 * mCapacity; i++) {
+            setX(i, i * mSpacing);
+        }
+        mNewest = mCapacity - 1;
+        mCount = 0;
+        for (int i = 0; i < history.size(); i++) {
+            add(history.get(i));
+        }
+    }
+
+    void add(float slippage) {
+        float y = mScale.convertSlippageLevelToYCoordinate(mScale.clampSlippage(slippage));
+        int slot = (mNewest + 1) % mCapacity;
+        setY(slot, y);
+        setY(slot + mCapacity, y);
+        mNewest = slot;
+        if (mCount < mCapacity) {
+            mCount++;
+        }
+    }
+
+    float[] getSegments() {
+        return mSegments;
+    }
+
+    /**
+     * Index of the first float of the oldest visible segment.
+     */
+    int getOffset() {
+        return 4 * (mNewest + mCapacity - mCount + 1);
+    }
+
+    /**
+     * Number of floats to draw from {@link #getOffset()}.
+     */
+    int getCount() {
+        return mCount < 2 ? 0 : 4 * (mCount - 1);
+    }
+
+    /**
+     * Horizontal shift that puts the newest point at {@code right}.
+     */
+    float getTranslation(float right) {
+        return right - (mNewest + mCapacity) * mSpacing;
+    }
+
+    private void setX(int index, float x) {
+        if (index < 2 * mCapacity - 1) {
+            mSegments[4 * index] = x;
+        }
+        if (index > 0) {
+            mSegments[4 * index - 2] = x;
+        }
+    }
+
+    private void setY(int index, float y) {
+        if (index < 2 * mCapacity - 1) {
+            mSegments[4 * index + 1] = y;
+        }
+        if (index > 0) {
+            mSegments[4 * index - 1] = y;
+        }
+    }
+}
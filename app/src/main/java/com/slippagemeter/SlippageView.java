@@ -1,63 +1,69 @@
 package com.slippagemeter;
 
 import android.content.Context;
-import android.content.res.Resources;
-import android.content.res.TypedArray;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Shader;
-import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.View;
 
+import com.slippagemeter.core.SlippageFrame;
+import com.slippagemeter.core.SlippageHistory;
+import com.slippagemeter.core.SlippageLayout;
+import com.slippagemeter.core.SlippageStatistics;
+import com.slippagemeter.core.SlippageThresholds;
+
+
 public class SlippageView extends View {
 
-    private static final float MAX_DEF_VALUE = 10;
-    private static final float BEVEL_ANGLE = 60;
-
-    private float mLengthLine;
-    private float mWidthLine;
-    private int mMinGreenColor;
-    private int mMaxGreenColor;
-    private int mMinRedColor;
-    private int mMaxRedColor;
-    private float mMaxValue;
-    private float mAvatarRadius;
-    private int mAvatarBubbleBackground;
-    private int mAvatarBubbleCircleBackground;
-    private float mAvatarBubbleStrokeWidth;
-    private Drawable mDefaultAvatar;
-    private float mSlippageTextSize;
-    private float mPipsTextSize;
-    private int mSlippageTextColor;
-    private float mSlippageBubbleStrokeWidth;
-    private int mSlippageBubbleBackgroundColor;
-    private float mSlippageTextPadding;
-
-    private Paint mGradientPaint;
-    private Paint mAvatarPaint;
-    private Paint mCircleAvatarBackgroundPaint;
-    private Paint mSlippageTextPaint;
-    private Paint mPipsTextPaint;
-    private Paint mSlippageBubbleBackgroundPaint;
-    private Paint mSlippageBubblePaint;
-    private Paint mSlippageBubbleBevelPaint;
-
-    private int[] mColors;
-    private Bitmap mBitmap;
-    private float mSlippageBubbleYCoordinate;
-    private float mSlippage;
+    private SlippageStyle mStyle;
+    private SlippageRenderer mRenderer;
+    private volatile SlippageLayout mLayout;
+    private int mBubbleHeight;
+    private final AvatarBinding mAvatar = new AvatarBinding(getResources(), new AvatarBinding.Listener() {
+        @Override
+        public void onAvatarChanged() {
+            invalidate();
+        }
+    });
+    private SlippageFrame mFrame = new SlippageFrame();
+    private SlippageFrame mSpareFrame = new SlippageFrame();
+
+    private final RectF mBounds = new RectF();
+    private final Rect mOldDirtyRect = new Rect();
+    private final Rect mDirtyRect = new Rect();
+    private volatile SlippageStatistics mStatistics;
+    private volatile SlippageMetrics mMetrics;
+    private final float[] mStatisticsMarkers = new float[SlippageStatistics.MARKER_COUNT];
+    private final SlippageTickCoalescer mTickCoalescer = new SlippageTickCoalescer(this);
+    private final SlippageSmoothing mSmoothing = new SlippageSmoothing(this);
+    private float mTargetMin;
+    private float mTargetMax;
+    private SlippageHistory mHistory;
+    private SlippageTrail mTrail;
+    private FrameBudgetGovernor mGovernor;
+    private int mQuality = FrameBudgetGovernor.QUALITY_FULL;
+    private volatile float mSlippageStep;
+    private long mLastUpdateFrameNanos;
+    private boolean mBubbleSprites;
+    private SlippageRenderer mBubbleAtlasRenderer;
+    private boolean mAttached;
+    private SlippageParticipants mParticipants;
+    private SlippageThresholds mThresholds;
+    private float[] mThresholdLines;
+    private SlippageLayout mThresholdLinesLayout;
+    private int mDrawnCrossedStart;
+    private int mDrawnCrossedEnd;
+
+    private final FrameBudgetGovernor.Listener mQualityListener = new FrameBudgetGovernor.Listener() {
+        @Override
+        public void onQualityChanged(final int quality) {
+            setQuality(quality);
+        }
+    };
 
     public SlippageView(final Context context) {
         super(context);
@@ -75,401 +81,504 @@ public class SlippageView extends View {
     }
 
     private void init(Context context, AttributeSet attrs) {
-        if (attrs != null) {
-            TypedArray array = null;
-            try {
-                array = context.obtainStyledAttributes(attrs, R.styleable.SlippageView);
-                float scale = array.getFloat(R.styleable.SlippageView_scale, 1);
-                mLengthLine = scale * array.getDimension(R.styleable.SlippageView_lengthLine, 0);
-                mWidthLine = scale * array.getDimension(R.styleable.SlippageView_widthLine, 0);
-                mMinGreenColor = array.getColor(R.styleable.SlippageView_minGreen, Color.WHITE);
-                mMaxGreenColor = array.getColor(R.styleable.SlippageView_maxGreen, Color.WHITE);
-                mMinRedColor = array.getColor(R.styleable.SlippageView_minRed, Color.WHITE);
-                mMaxRedColor = array.getColor(R.styleable.SlippageView_maxRed, Color.WHITE);
-                mMaxValue = array.getFloat(R.styleable.SlippageView_maxValue, MAX_DEF_VALUE);
-                mAvatarRadius = scale * array.getDimension(R.styleable.SlippageView_avatarRadius, 0);
-                mAvatarBubbleBackground = array.getColor(R.styleable.SlippageView_avatarBubbleBackground, Color.WHITE);
-                mAvatarBubbleCircleBackground = array.getColor(R.styleable.SlippageView_avatarBubbleCircleBackground, Color.BLACK);
-                mAvatarBubbleStrokeWidth = array.getDimension(R.styleable.SlippageView_avatarBubbleStrokeWidth, 0);
-                mSlippageTextSize = scale * array.getDimension(R.styleable.SlippageView_slippageTextSize, 0);
-                mPipsTextSize = scale * array.getDimension(R.styleable.SlippageView_pipsTextSize, 0);
-                mSlippageTextColor = array.getColor(R.styleable.SlippageView_slippageTextColor, Color.WHITE);
-                mSlippageBubbleStrokeWidth = array.getDimension(R.styleable.SlippageView_slippageBubbleStrokeWidth, 0);
-                mSlippageBubbleBackgroundColor = array.getColor(R.styleable.SlippageView_slippageBubbleBackgroundColor, Color.BLACK);
-                mSlippageTextPadding = scale * array.getDimension(R.styleable.SlippageView_slippageTextPadding, 0);
-                try {
-                    int mDefaultAvatarRes = array.getResourceId(R.styleable.SlippageView_defaultAvatar, 0);
-                    mDefaultAvatar = getResources().getDrawable(mDefaultAvatarRes);
-                } catch (Resources.NotFoundException e) {
-                    // do nothing
-                }
-            } finally {
-                if (array != null) {
-                    array.recycle();
-                }
-            }
-        }
-        mColors = new int[]{mMaxGreenColor, mMinGreenColor, mMinRedColor, mMaxRedColor};
-        initGradientPaint();
-        initAvatarPaint();
-        initCircleAvatarBackgroundPaint();
-        initSlippageTextPaint();
-        initPipsTextPaint();
-        initSlippageBubbleBackgroundPaint();
-        initSlippageBubblePaint();
-        initSlippageBubbleBevelPaint();
-    }
-
-    private void initGradientPaint() {
-        mGradientPaint = new Paint();
-        mGradientPaint.setAntiAlias(true);
-        mGradientPaint.setStyle(Paint.Style.FILL);
-        mGradientPaint.setShader(getGradientShader());
-    }
-
-    private Shader getGradientShader() {
-        return new LinearGradient(0, 0, 0, mLengthLine, mColors, new float[]{0.1f, 0.4f, 0.6f, 0.95f}, Shader.TileMode.CLAMP);
+        applyStyle(SlippageStyle.obtain(context, attrs));
     }
 
-    private void initAvatarPaint() {
-        mAvatarPaint = new Paint();
-        mAvatarPaint.setAntiAlias(true);
-        mAvatarPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-        mAvatarPaint.setStrokeWidth(0);
-        mAvatarPaint.setColor(mAvatarBubbleBackground);
+    public SlippageStyle getStyle() {
+        return mStyle;
     }
 
-    private void initCircleAvatarBackgroundPaint() {
-        mCircleAvatarBackgroundPaint = new Paint();
-        mCircleAvatarBackgroundPaint.setAntiAlias(true);
-        mCircleAvatarBackgroundPaint.setColor(mAvatarBubbleCircleBackground);
-    }
-
-    private void initSlippageTextPaint() {
-        mSlippageTextPaint = new Paint();
-        mSlippageTextPaint.setAntiAlias(true);
-        mSlippageTextPaint.setColor(mSlippageTextColor);
-        mSlippageTextPaint.setTextSize(mSlippageTextSize);
-    }
-
-    private void initPipsTextPaint() {
-        mPipsTextPaint = new Paint();
-        mPipsTextPaint.setAntiAlias(true);
-        mPipsTextPaint.setColor(mSlippageTextColor);
-        mPipsTextPaint.setTextSize(mPipsTextSize);
-    }
-
-    private void initSlippageBubblePaint() {
-        mSlippageBubblePaint = new Paint();
-        mSlippageBubblePaint.setAntiAlias(true);
-        mSlippageBubblePaint.setStyle(Paint.Style.FILL_AND_STROKE);
-        mSlippageBubblePaint.setStrokeWidth(mSlippageBubbleStrokeWidth);
-    }
-
-    private void initSlippageBubbleBevelPaint() {
-        mSlippageBubbleBevelPaint = new Paint();
-        mSlippageBubbleBevelPaint.setAntiAlias(true);
-        mSlippageBubbleBevelPaint.setStyle(Paint.Style.FILL);
-    }
-
-    private void initSlippageBubbleBackgroundPaint() {
-        mSlippageBubbleBackgroundPaint = new Paint();
-        mSlippageBubbleBackgroundPaint.setAntiAlias(true);
-        mSlippageBubbleBackgroundPaint.setColor(mSlippageBubbleBackgroundColor);
+    /**
+     * Switches the meter to another style. Views with equal styles share a renderer, so binding a recycled
+     * view to a symbol with the same configuration only touches per-view value state.
+     */
+    public void setStyle(final SlippageStyle style) {
+        if (style.equals(mStyle)) {
+            return;
+        }
+        applyStyle(style);
+        requestLayout();
+        invalidate();
     }
 
-    private float getAvatarBubbleWidth() {
-        return (float) (mAvatarRadius * (Math.tan(BEVEL_ANGLE * Math.PI / 180) + 1));
+    private void applyStyle(SlippageStyle style) {
+        mStyle = style;
+        mRenderer = SlippageRenderer.obtain(getResources(), style);
+        mLayout = mRenderer.getLayout();
+        mBubbleHeight = mLayout.getMaxBubbleHeight();
+        layoutFrame(mFrame.getSlippage(), mFrame.getSlippageMin(), mFrame.getSlippageMax(), mFrame);
+        rebuildTrail();
+        if (mParticipants != null) {
+            mParticipants.setRenderer(mRenderer);
+        }
+        updateBubbleAtlas();
+        mAvatar.setStyle(style, mRenderer.getAvatarImageSize());
     }
 
     @Override
     protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        long start = getMetricsTime();
         int width = getMeasuredWidth();
-        setMeasuredDimension(View.resolveSize(width, widthMeasureSpec), (int) (mLengthLine + getBubbleHeight()));
+        setMeasuredDimension(View.resolveSize(width, widthMeasureSpec), (int) (mRenderer.getLengthLine() + getBubbleHeight()));
+        if (start != 0) {
+            mMetrics.recordMeasure(System.nanoTime() - start);
+        }
     }
 
+    /**
+     * Room above the line for the tallest label's bubble, so the size does not change with the label.
+     */
     private int getBubbleHeight() {
-        String slippageText = formatSlippage(mSlippage);
-        int slippagePadding = (int) mSlippageTextPadding;
-        int height = getSlippageTextHeight(slippageText) + slippagePadding;
-        return height + (int) (2 * mSlippageBubbleStrokeWidth);
-    }
-
-    @Override
-    protected void onDraw(final Canvas canvas) {
-        super.onDraw(canvas);
-        canvas.translate(0, getBubbleHeight());
-        drawLine(canvas);
-        drawAvatarBubble(canvas);
-        drawAvatar(canvas);
-        drawSlippageLevelBubble(canvas);
-    }
-
-    private float getLeftXGradientLine() {
-        return getWidth() / 2 - mWidthLine / 2;
+        return mBubbleHeight;
     }
 
-    private float getRightXGradientLine() {
-        return getWidth() / 2 + mWidthLine / 2;
+    private int getRendererLeft() {
+        return getWidth() / 2;
     }
 
-    private void drawLine(Canvas canvas) {
-        RectF rectF = new RectF(getLeftXGradientLine(), 0, getRightXGradientLine(), mLengthLine);
-        canvas.drawRect(rectF, mGradientPaint);
+    @Override
+    protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (w != oldw) {
+            rebuildTrail();
+        }
     }
 
-    private void drawAvatarBubble(Canvas canvas) {
-        Path path = new Path();
-        path.moveTo(getLeftXGradientLine(), getBottomYBubbleAvatar());
-        RectF rectF = new RectF(getLeftXBubbleAvatar(), getTopYBubbleAvatar(), getRightXBubbleAvatar(), getBottomYBubbleAvatar());
-        path.arcTo(rectF, -30, -240, false);
-        canvas.drawPath(path, mAvatarPaint);
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        long start = getMetricsTime();
+        super.onDraw(canvas);
+        canvas.translate(getRendererLeft(), getBubbleHeight());
+        if (mTrail != null) {
+            mRenderer.drawTrail(canvas, mTrail, -getRendererLeft(), mRenderer.getTrailRight());
+        }
+        mRenderer.drawStaticLayer(canvas);
+        Avatar avatar = mAvatar.getAvatar();
+        if (avatar != null && mQuality < FrameBudgetGovernor.QUALITY_NO_AVATAR) {
+            mRenderer.drawAvatar(canvas, avatar);
+        }
+        if (mParticipants != null) {
+            mParticipants.draw(canvas);
+        }
+        if (mThresholds != null) {
+            drawThresholds(canvas);
+        }
+        mRenderer.drawFrame(canvas, mFrame, mQuality < FrameBudgetGovernor.QUALITY_NO_ANTI_ALIAS, mBubbleSprites);
+        if (mGovernor != null) {
+            mGovernor.onFrameDrawn();
+        }
+        long tickTime = mFrame.getTickTimeNanos();
+        mFrame.setTickTimeNanos(0);
+        if (start != 0) {
+            long end = System.nanoTime();
+            mMetrics.recordDraw(end - start);
+            if (tickTime != 0) {
+                mMetrics.recordTickLatency(end - tickTime);
+            }
+        }
     }
 
-    private float getLeftXBubbleAvatar() {
-        return getLeftXGradientLine() - getAvatarBubbleWidth();
+    /**
+     * Records onDraw and onMeasure durations, tick-to-pixel latency and dropped frames into {@code metrics}
+     * while it is enabled. Pass {@code null} to stop recording.
+     */
+    public void setMetrics(SlippageMetrics metrics) {
+        mMetrics = metrics;
     }
 
-    private float getRightXBubbleAvatar() {
-        return 2 * mAvatarRadius + getLeftXGradientLine() - getAvatarBubbleWidth();
+    public SlippageMetrics getMetrics() {
+        return mMetrics;
     }
 
-    private float getTopYBubbleAvatar() {
-        return getYGradientLineCenter() - 2 * mAvatarRadius;
+    boolean isMetricsEnabled() {
+        SlippageMetrics metrics = mMetrics;
+        return metrics != null && metrics.isEnabled();
     }
 
-    private float getBottomYBubbleAvatar() {
-        return getYGradientLineCenter();
+    private long getMetricsTime() {
+        return isMetricsEnabled() ? System.nanoTime() : 0;
     }
 
-    private float getYGradientLineCenter() {
-        return mLengthLine / 2;
+    /**
+     * Shows {@code drawable} as the avatar once it is scaled on a background thread. Pass {@code null} to
+     * return to the style's default avatar.
+     */
+    public void setImageDrawable(final Drawable drawable) {
+        mAvatar.setDrawable(drawable);
     }
 
-    private void drawAvatar(Canvas canvas) {
-        drawCircleBackgroundUnderAvatar(canvas);
-        if (mBitmap == null && mDefaultAvatar != null) {
-            useDefaultAvatar();
+    public void setSlippage(float slippage) {
+        mStyle.checkSlippage(slippage);
+        SlippageStatistics statistics = mStatistics;
+        if (statistics != null) {
+            statistics.add(slippage);
         }
-        if (mBitmap != null) {
-            drawBitmap(canvas);
+        addToHistory(slippage);
+        if (mSmoothing.isEnabled()) {
+            slippage = mLayout.getScale().clampSlippage(slippage);
+            mTargetMin = slippage;
+            mTargetMax = slippage;
+            mSmoothing.setTarget(slippage, mFrame.getSlippage(), getMetricsTime());
+            return;
         }
+        SlippageFrame frame = mSpareFrame;
+        layoutFrame(slippage, slippage, slippage, frame);
+        frame.setTickTimeNanos(getMetricsTime());
+        mSpareFrame = swapFrame(frame);
+    }
+
+    /**
+     * Moves the bubble toward each new slippage with a critically damped spring that settles in roughly
+     * {@code millis}, instead of jumping. Frames are only scheduled while the bubble moves. Pass 0 to disable.
+     */
+    public void setSmoothingTime(long millis) {
+        mSmoothing.setSmoothingTime(millis);
+    }
+
+    /**
+     * Draws the bubble with one drawBitmap call from an atlas of pre-rendered bubbles, shared by all attached
+     * meters with this style and built in the background. Paths are drawn until it is ready and for labels that did not fit
+     * its memory budget. Sprites are tinted per 0.1 pip rather than per pixel.
+     */
+    public void setBubbleSprites(boolean enabled) {
+        mBubbleSprites = enabled;
+        updateBubbleAtlas();
+        invalidate();
     }
 
-    private void drawCircleBackgroundUnderAvatar(Canvas canvas) {
-        float xCircleCenter = getXCenterCircleBackgroundUnderAvatar();
-        float yCircleCenter = getYCenterCircleBackgroundUnderAvatar();
-        float radius = mAvatarRadius - mAvatarBubbleStrokeWidth;
-        canvas.drawCircle(xCircleCenter, yCircleCenter, radius, mCircleAvatarBackgroundPaint);
-    }
-
-    private float getXCenterCircleBackgroundUnderAvatar() {
-        return getLeftXBubbleAvatar() + mAvatarRadius;
+    /**
+     * Holds the atlas of the current renderer while sprites are enabled and the view is attached, so an atlas is
+     * released when the last attached meter of its style stops using it.
+     */
+    private void updateBubbleAtlas() {
+        SlippageRenderer renderer = mBubbleSprites && mAttached ? mRenderer : null;
+        if (renderer == mBubbleAtlasRenderer) {
+            return;
+        }
+        if (mBubbleAtlasRenderer != null) {
+            mBubbleAtlasRenderer.releaseBubbleAtlas();
+        }
+        mBubbleAtlasRenderer = renderer;
+        if (renderer != null) {
+            renderer.acquireBubbleAtlas(getResources());
+        }
     }
 
-    private float getYCenterCircleBackgroundUnderAvatar() {
-        return getYGradientLineCenter() - mAvatarRadius;
+    /**
+     * Reserves markers for participants with ids in [0, {@code capacity}), drawn left of the gradient line.
+     * Markers closer than an avatar's diameter merge into one badge with their count. Pass 0 to remove them.
+     */
+    public void setParticipantCapacity(int capacity) {
+        if (capacity <= 0) {
+            mParticipants = null;
+        } else if (mParticipants == null || mParticipants.capacity() != capacity) {
+            mParticipants = new SlippageParticipants(this, capacity);
+            mParticipants.setRenderer(mRenderer);
+        }
+        invalidate();
     }
 
-    private void useDefaultAvatar() {
-        setImageDrawable(mDefaultAvatar);
+    /**
+     * Moves the marker of participant {@code id}; only redraws if it lands in another 0.1 pip bucket.
+     */
+    public void setParticipantSlippage(int id, float slippage) {
+        if (getParticipants().set(id, slippage)) {
+            invalidateParticipants();
+        }
     }
 
-    private void drawBitmap(Canvas canvas) {
-        float left = getXCenterCircleBackgroundUnderAvatar() - getAvatarImageSize() / 2;
-        float top = getYGradientLineCenter() - mAvatarRadius - getAvatarImageSize() / 2;
-        canvas.drawBitmap(mBitmap, left, top, mCircleAvatarBackgroundPaint);
+    public void removeParticipant(int id) {
+        if (getParticipants().remove(id)) {
+            invalidateParticipants();
+        }
     }
 
-    private int getAvatarImageSize() {
-        return (int) (2 * mAvatarRadius - mAvatarBubbleStrokeWidth);
+    public void setParticipantAvatar(int id, Drawable drawable) {
+        getParticipants().setAvatar(id, drawable);
+        invalidateParticipants();
     }
 
-    public void setImageDrawable(final Drawable drawable) {
-        mBitmap = ((BitmapDrawable) drawable).getBitmap();
-        int size = getAvatarImageSize();
-        mBitmap = Bitmap.createScaledBitmap(mBitmap, size, size, true);
-        mBitmap = getClip();
-    }
-
-    private Bitmap getClip() {
-        int width = mBitmap.getWidth();
-        int height = mBitmap.getHeight();
-        Bitmap output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(output);
-        final Paint paint = new Paint();
-        final Rect rect = new Rect(0, 0, width, height);
-        paint.setAntiAlias(true);
-        canvas.drawARGB(0, 0, 0, 0);
-        canvas.drawCircle(width / 2, height / 2, width / 2, paint);
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        canvas.drawBitmap(mBitmap, rect, rect, paint);
-        return output;
+    private SlippageParticipants getParticipants() {
+        if (mParticipants == null) {
+            throw new IllegalStateException("Call setParticipantCapacity before adding participants");
+        }
+        return mParticipants;
+    }
+
+    private void invalidateParticipants() {
+        invalidate(getRendererLeft() + (int) Math.floor(mParticipants.getLeft()), 0,
+                getRendererLeft() + (int) Math.ceil(mParticipants.getRight()), getHeight());
+    }
+
+    /**
+     * Keeps the last {@code size} slippage values and draws them as a fading trail left of the gradient line,
+     * newest next to the line. One value is kept per setSlippage call or posted frame. Pass 0 to remove it.
+     */
+    public void setHistorySize(int size) {
+        if (size <= 0) {
+            mHistory = null;
+            mTrail = null;
+        } else if (mHistory == null || mHistory.capacity() != size) {
+            SlippageHistory history = new SlippageHistory(Math.max(2, size));
+            if (mHistory != null) {
+                int start = Math.max(0, mHistory.size() - history.capacity());
+                for (int i = start; i < mHistory.size(); i++) {
+                    history.add(mHistory.get(i));
+                }
+            }
+            mHistory = history;
+            mTrail = new SlippageTrail(history.capacity());
+            rebuildTrail();
+        }
+        invalidate();
     }
 
-    public void setSlippage(float slippage) {
-        if (Float.compare(slippage, mMaxValue) > 0) {
-            throw new IllegalArgumentException("Your slippage is out of range: " + slippage + " > " + mMaxValue);
+    private void addToHistory(float slippage) {
+        if (mHistory == null) {
+            return;
         }
-        mSlippage = slippage;
-        mSlippageBubbleYCoordinate = convertSlippageLevelToYCoordinate(slippage);
+        mHistory.add(slippage);
+        mTrail.add(slippage);
+        invalidate(0, getBubbleHeight(), getRendererLeft() + (int) Math.ceil(mRenderer.getTrailRight()) + 1,
+                getBubbleHeight() + (int) Math.ceil(mRenderer.getLengthLine()) + 1);
     }
 
-    private float convertYCoordinateToSlippage(float yCoordinate) {
-        return mMaxValue * (1 - 2 * yCoordinate / mLengthLine);
+    private void rebuildTrail() {
+        if (mTrail != null) {
+            mTrail.rebuild(mHistory, mLayout.getScale(), Math.max(1, getRendererLeft() + mRenderer.getTrailRight()));
+        }
     }
 
-    private float convertSlippageLevelToYCoordinate(float slippage) {
-        return mLengthLine * (mMaxValue - slippage) / 2 / mMaxValue;
+    void applySmoothedSlippage(float slippage, long tickTimeNanos) {
+        SlippageFrame frame = mSpareFrame;
+        layoutFrame(slippage, mTargetMin, mTargetMax, frame);
+        frame.setTickTimeNanos(tickTimeNanos);
+        mSpareFrame = swapFrame(frame);
     }
 
-    private void drawSlippageLevelBubble(Canvas canvas) {
-        String slippageText = formatSlippage(mSlippage);
-        float slippageTextLength = getSlippageTextLength(slippageText);
-        int slippagePadding = (int) mSlippageTextPadding;
-        int slippageTextHeight = getSlippageTextHeight(slippageText) + slippagePadding;
-
-        float bubbleBevelLength = getBubbleBevel(slippageTextHeight / 2);
-        float realX = getRightXGradientLine() + bubbleBevelLength;
-        float x = getBubbleX(realX, slippageTextHeight);
-        float y = getBubbleY(mSlippageBubbleYCoordinate);
-
-        String pips = getContext().getString(R.string.pips);
-        float pipsTextLength = mPipsTextPaint.measureText(pips, 0, pips.length());
-
-        mSlippageBubbleBevelPaint.setColor(getGradientColor(mSlippageBubbleYCoordinate));
-        mSlippageBubblePaint.setColor(getGradientColor(mSlippageBubbleYCoordinate));
-
-        drawBubbleBevel(canvas, getRightXGradientLine(), y, bubbleBevelLength);
-        drawSlippageBubbleBackground(canvas, x, y, slippageTextLength + pipsTextLength, slippageTextHeight, mSlippageBubblePaint);
-        drawSlippageBubbleBackground(canvas, x, y, slippageTextLength + pipsTextLength, slippageTextHeight, mSlippageBubbleBackgroundPaint);
-        drawSlippageTextLevelInBubble(canvas, slippageText, x, y - slippagePadding / 2);
-        drawPips(canvas, x + slippageTextLength, y - 2 * slippagePadding / 3);
+    /**
+     * Lets {@code governor} lower this meter's rendering quality while frames overrun their budget. Pass
+     * {@code null} to always draw at full quality.
+     */
+    public void setFrameBudgetGovernor(FrameBudgetGovernor governor) {
+        if (mGovernor != null) {
+            mGovernor.removeListener(mQualityListener);
+        }
+        mGovernor = governor;
+        if (governor != null && getWindowToken() != null) {
+            governor.addListener(mQualityListener);
+        }
+        setQuality(governor != null ? governor.getQuality() : FrameBudgetGovernor.QUALITY_FULL);
     }
 
-    private float getBubbleBevel(float radius) {
-        return (float) (radius * Math.tan(BEVEL_ANGLE * Math.PI / 180));
+    private void setQuality(int quality) {
+        if (quality == mQuality) {
+            return;
+        }
+        mQuality = quality;
+        mSlippageStep = mGovernor != null ? mGovernor.getSlippageStep() : 0;
+        layoutFrame(mFrame.getSlippage(), mFrame.getSlippageMin(), mFrame.getSlippageMax(), mFrame);
+        invalidate();
     }
 
-    private float getBubbleX(float x, float bubbleHeight) {
-        return x + bubbleHeight / 2 + mSlippageBubbleStrokeWidth;
+    float getSlippageStep() {
+        return mSlippageStep;
     }
 
-    private float getBubbleY(float y) {
-        return y - mSlippageBubbleStrokeWidth / 2;
+    /**
+     * Whether a posted or smoothed update may be applied in the frame at {@code frameTimeNanos} under the
+     * governor's rate cap. Every caller in one frame gets the same answer.
+     */
+    boolean isUpdateDue(long frameTimeNanos) {
+        if (frameTimeNanos == mLastUpdateFrameNanos) {
+            return true;
+        }
+        long interval = mGovernor != null ? mGovernor.getMinUpdateIntervalNanos() : 0;
+        if (interval > 0 && frameTimeNanos - mLastUpdateFrameNanos < interval) {
+            return false;
+        }
+        mLastUpdateFrameNanos = frameTimeNanos;
+        return true;
     }
 
-    private int getSlippageTextHeight(String slippageText) {
-        Rect rect = new Rect();
-        mSlippageTextPaint.getTextBounds(slippageText, 0, slippageText.length(), rect);
-        return rect.height();
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        updateBubbleAtlas();
+        if (mGovernor != null) {
+            mGovernor.addListener(mQualityListener);
+            setQuality(mGovernor.getQuality());
+        }
     }
 
-    private float getSlippageTextLength(String slippageText) {
-        return mSlippageTextPaint.measureText(slippageText, 0, slippageText.length());
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mAttached = false;
+        updateBubbleAtlas();
+        mSmoothing.stop();
+        if (mGovernor != null) {
+            mGovernor.removeListener(mQualityListener);
+        }
     }
 
-    private void drawSlippageBubbleBackground(Canvas canvas, float x, float y, float length, float height, Paint paint) {
-        y = y - height;
-        Path path = new Path();
-        drawStartSegment(x - height / 2, y, height, path);
-        path.lineTo(x, y + height);
-        drawEndSegment(x, y, length, height, path);
-        path.lineTo(x, y);
-        canvas.drawPath(path, paint);
+    private void layoutFrame(float slippage, float min, float max, SlippageFrame frame) {
+        SlippageStatistics statistics = mStatistics;
+        float[] markers = null;
+        if (statistics != null) {
+            statistics.readMarkers(mStatisticsMarkers);
+            markers = mStatisticsMarkers;
+        }
+        mLayout.layout(slippage, min, max, markers, mSlippageStep, frame);
+    }
+
+    /**
+     * Shows {@code frame} and invalidates what changed since the current one, which is returned for reuse.
+     */
+    private SlippageFrame swapFrame(SlippageFrame frame) {
+        SlippageFrame old = mFrame;
+        mFrame = frame;
+        boolean dirty = invalidateChanges(old, frame);
+        long pendingTickTime = old.getTickTimeNanos();
+        if (pendingTickTime != 0) {
+            frame.setTickTimeNanos(pendingTickTime);
+        } else if (!dirty) {
+            frame.setTickTimeNanos(0);
+        }
+        return old;
     }
 
-    private void drawSlippageTextLevelInBubble(Canvas canvas, String slippageText, float x, float y) {
-        canvas.drawText(slippageText, x, y, mSlippageTextPaint);
+    private boolean invalidateChanges(SlippageFrame old, SlippageFrame frame) {
+        if (old.getLayout() != frame.getLayout()) {
+            invalidate();
+            return true;
+        }
+        boolean dirty = false;
+        if (!old.hasSameBubble(frame)) {
+            invalidate(old, frame, SlippageFrame.BUBBLE_LEFT, SlippageFrame.BUBBLE_TOP, SlippageFrame.BUBBLE_RIGHT, SlippageFrame.BUBBLE_BOTTOM);
+            dirty = true;
+        }
+        if (!old.hasSameEnvelope(frame)) {
+            invalidate(old, frame, SlippageFrame.ENVELOPE_LEFT, SlippageFrame.ENVELOPE_TOP, SlippageFrame.ENVELOPE_RIGHT, SlippageFrame.ENVELOPE_BOTTOM);
+            dirty = true;
+        }
+        if (!old.hasSameMarkers(frame) || hasNewCrossedThresholds()) {
+            SlippageLayout layout = frame.getLayout();
+            mBounds.set(layout.getStatisticsMarkerLeft(), 0, layout.getStatisticsMarkerRight(), mRenderer.getLengthLine());
+            toDirtyRect(mBounds, mDirtyRect);
+            invalidate(mDirtyRect);
+            dirty = true;
+        }
+        return dirty;
     }
 
-    private void drawPips(Canvas canvas, float x, float y) {
-        String pips = getContext().getString(R.string.pips);
-        canvas.drawText(pips, x, y, mPipsTextPaint);
+    private boolean hasNewCrossedThresholds() {
+        return mThresholds != null && (mThresholds.getCrossedStart() != mDrawnCrossedStart
+                || mThresholds.getCrossedEnd() != mDrawnCrossedEnd);
     }
 
-    private void drawStartSegment(float x, float y, float height, Path path) {
-        drawSegment(x, y, height + x, height + y, 90, 180, path);
+    private void invalidate(SlippageFrame old, SlippageFrame frame, int left, int top, int right, int bottom) {
+        float[] coordinates = old.getCoordinates();
+        mBounds.set(coordinates[left], coordinates[top], coordinates[right], coordinates[bottom]);
+        toDirtyRect(mBounds, mOldDirtyRect);
+        coordinates = frame.getCoordinates();
+        mBounds.set(coordinates[left], coordinates[top], coordinates[right], coordinates[bottom]);
+        toDirtyRect(mBounds, mDirtyRect);
+        mDirtyRect.union(mOldDirtyRect);
+        invalidate(mDirtyRect);
     }
 
-    private void drawEndSegment(float x, float y, float length, float height, Path path) {
-        float left = x + length - height / 2;
-        float right = height + left;
-        float bottom = height + y;
-        drawSegment(left, y, right, bottom, 90, -180, path);
+    /**
+     * Thread-safe alternative to {@link #setSlippage(float)}. Only the latest value posted before the next
+     * display frame is applied, clamped to the meter range, so it can be called for every market data tick.
+     */
+    public void postSlippage(float slippage) {
+        SlippageStatistics statistics = mStatistics;
+        if (statistics != null) {
+            statistics.add(slippage);
+        }
+        mTickCoalescer.offer(slippage, isMetricsEnabled());
     }
 
-    private void drawSegment(
-            float left,
-            float top,
-            float right,
-            float bottom,
-            float startAngle,
-            float sweepAngle,
-            Path path
-    ) {
-        RectF rectF = new RectF(left, top, right, bottom);
-        path.arcTo(rectF, startAngle, sweepAngle);
+    /**
+     * Attaches statistics that record every set or posted slippage and are drawn as tick marks across the
+     * gradient line. Pass {@code null} to remove them.
+     */
+    public void setStatistics(SlippageStatistics statistics) {
+        mStatistics = statistics;
+        layoutFrame(mFrame.getSlippage(), mFrame.getSlippageMin(), mFrame.getSlippageMax(), mFrame);
+        invalidate();
     }
 
-    private String formatSlippage(float v) {
-        return String.format("%.1f", v);
+    /**
+     * Draws the levels of {@code thresholds} across the gradient line and highlights the crossed ones. Feed
+     * the same object to a {@link com.slippagemeter.core.ThresholdEngine}; highlights follow the engine when
+     * this meter shows its next value. Pass {@code null} to remove them.
+     */
+    public void setThresholds(SlippageThresholds thresholds) {
+        mThresholds = thresholds;
+        mThresholdLinesLayout = null;
+        invalidate();
     }
 
-    private void drawBubbleBevel(Canvas canvas, float x, float y, float bubbleBevelLength) {
-        Path path = new Path();
-        path.moveTo(x, y + mSlippageBubbleStrokeWidth / 2);
-        path.lineTo(x + bubbleBevelLength + getBubbleHeight() / 2, y + mSlippageBubbleStrokeWidth / 2);
-        RectF rectF = new RectF(x + mSlippageBubbleStrokeWidth / 2, y - getBubbleHeight() + 2 * mSlippageBubbleStrokeWidth, x + bubbleBevelLength + getBubbleHeight() / 2, y);
-        path.arcTo(rectF, -BEVEL_ANGLE, 0, false);
-        canvas.drawPath(path, mSlippageBubbleBevelPaint);
+    private void drawThresholds(Canvas canvas) {
+        if (mThresholdLinesLayout != mLayout) {
+            mThresholdLines = mRenderer.buildThresholdLines(mThresholds, mThresholdLines);
+            mThresholdLinesLayout = mLayout;
+        }
+        mDrawnCrossedStart = mThresholds.getCrossedStart();
+        mDrawnCrossedEnd = mThresholds.getCrossedEnd();
+        mRenderer.drawThresholds(canvas, mThresholdLines, mThresholds.size(), mDrawnCrossedStart, mDrawnCrossedEnd);
     }
 
-    private int getAverageColor(int color1, int color2, float percent) {
-        int a = ave(Color.alpha(color1), Color.alpha(color2), percent);
-        int r = ave(Color.red(color1), Color.red(color2), percent);
-        int g = ave(Color.green(color1), Color.green(color2), percent);
-        int b = ave(Color.blue(color1), Color.blue(color2), percent);
-
-        return Color.argb(a, r, g, b);
+    SlippageLayout getLayout() {
+        return mLayout;
     }
 
-    private int ave(int s, int d, float p) {
-        return Math.round(s + (1 - p) * (d - s));
+    SlippageStatistics getStatistics() {
+        return mStatistics;
     }
 
-    private int getGradientColor(float y) {
-        float percent;
-        float a = 0;
-        float b = 3 * mLengthLine / 8;
-        float c = 5 * mLengthLine / 8;
-        float d = mLengthLine;
-        if (Float.compare(y, a) >= 0 && Float.compare(y, b) < 0) {
-            percent = getPercentage(a, b, y);
-            return getAverageColor(mColors[0], mColors[1], percent);
-        }
-        if (Float.compare(y, b) >= 0 && Float.compare(y, c) < 0) {
-            percent = getPercentage(b, c, y);
-            return getAverageColor(mColors[1], mColors[2], percent);
+    /**
+     * Shows a frame laid out off the main thread and returns the replaced frame for reuse. A frame laid out
+     * for a previous style is laid out again first. With smoothing the frame only retargets the spring.
+     */
+    SlippageFrame applyFrame(SlippageFrame frame) {
+        addToHistory(frame.getSlippage());
+        if (mSmoothing.isEnabled()) {
+            mTargetMin = frame.getSlippageMin();
+            mTargetMax = frame.getSlippageMax();
+            mSmoothing.setTarget(frame.getSlippage(), mFrame.getSlippage(), frame.getTickTimeNanos());
+            return frame;
         }
-        if (Float.compare(y, c) >= 0 && Float.compare(y, d) <= 0) {
-            percent = getPercentage(c, d, y);
-            return getAverageColor(mColors[2], mColors[3], percent);
+        if (frame.getLayout() != mLayout) {
+            layoutFrame(frame.getSlippage(), frame.getSlippageMin(), frame.getSlippageMax(), frame);
         }
-
-        return 0;
+        return swapFrame(frame);
     }
 
-    private float getPercentage(float a, float b, float currentValue) {
-        if (Float.compare(a, currentValue) > 0 || Float.compare(b, currentValue) < 0) {
-            throw new IllegalArgumentException("Wrong " + currentValue + ". It's not from [" + a + "," + b + "]");
-        }
-        return (currentValue - b) / (a - b);
+    private void toDirtyRect(RectF bounds, Rect rect) {
+        bounds.offset(getRendererLeft(), getBubbleHeight());
+        bounds.roundOut(rect);
+        rect.inset(-1, -1);
     }
 
+    /**
+     * Versioned state written with primitive parcel calls only: the shown value and envelope, the smoothing
+     * target, the history and the statistics window with value ages, so nanoTime-based timestamps survive.
+     */
     static class SavedState extends BaseSavedState {
-        float slippageBubbleYCoordinate;
+        static final int VERSION = 1;
+
         float slippage;
+        float slippageMin;
+        float slippageMax;
+        float target;
+        float[] history;
+        long[] statisticsAges;
+        float[] statisticsValues;
+        float statisticsEwma = Float.NaN;
 
         SavedState(Parcelable superState) {
             super(superState);
@@ -477,15 +586,31 @@ public class SlippageView extends View {
 
         protected SavedState(Parcel in) {
             super(in);
-            slippageBubbleYCoordinate = (float) in.readSerializable();
-            slippage = (float) in.readSerializable();
+            int version = in.readInt();
+            if (version >= 1) {
+                slippage = in.readFloat();
+                slippageMin = in.readFloat();
+                slippageMax = in.readFloat();
+                target = in.readFloat();
+                history = in.createFloatArray();
+                statisticsAges = in.createLongArray();
+                statisticsValues = in.createFloatArray();
+                statisticsEwma = in.readFloat();
+            }
         }
 
         @Override
         public void writeToParcel(Parcel out, int flags) {
             super.writeToParcel(out, flags);
-            out.writeSerializable(slippageBubbleYCoordinate);
-            out.writeSerializable(slippage);
+            out.writeInt(VERSION);
+            out.writeFloat(slippage);
+            out.writeFloat(slippageMin);
+            out.writeFloat(slippageMax);
+            out.writeFloat(target);
+            out.writeFloatArray(history);
+            out.writeLongArray(statisticsAges);
+            out.writeFloatArray(statisticsValues);
+            out.writeFloat(statisticsEwma);
         }
 
         public static final Parcelable.Creator<SavedState> CREATOR =
@@ -506,8 +631,26 @@ public class SlippageView extends View {
         Parcelable superState = super.onSaveInstanceState();
 
         SavedState state = new SavedState(superState);
-        state.slippageBubbleYCoordinate = mSlippageBubbleYCoordinate;
-        state.slippage = mSlippage;
+        state.slippage = mFrame.getSlippage();
+        state.slippageMin = mFrame.getSlippageMin();
+        state.slippageMax = mFrame.getSlippageMax();
+        state.target = mSmoothing.isEnabled() ? mSmoothing.getTarget(state.slippage) : state.slippage;
+        if (mHistory != null) {
+            float[] history = new float[mHistory.size()];
+            mHistory.copyTo(history);
+            state.history = history;
+        }
+        SlippageStatistics statistics = mStatistics;
+        if (statistics != null) {
+            long now = System.nanoTime();
+            synchronized (statistics) {
+                int count = statistics.size(now);
+                state.statisticsAges = new long[count];
+                state.statisticsValues = new float[count];
+                statistics.save(now, state.statisticsAges, state.statisticsValues);
+                state.statisticsEwma = statistics.getEwma();
+            }
+        }
         return state;
     }
 
@@ -521,12 +664,28 @@ public class SlippageView extends View {
         SavedState savedState = (SavedState) state;
         super.onRestoreInstanceState(savedState.getSuperState());
 
-        mSlippageBubbleYCoordinate = savedState.slippageBubbleYCoordinate;
-        mSlippage = savedState.slippage;
+        SlippageStatistics statistics = mStatistics;
+        if (statistics != null && savedState.statisticsAges != null && savedState.statisticsValues != null) {
+            int count = Math.min(savedState.statisticsAges.length, savedState.statisticsValues.length);
+            statistics.restore(System.nanoTime(), savedState.statisticsAges, savedState.statisticsValues, count, savedState.statisticsEwma);
+        }
+        if (mHistory != null && savedState.history != null) {
+            mHistory.clear();
+            for (float slippage : savedState.history) {
+                mHistory.add(slippage);
+            }
+            rebuildTrail();
+        }
+        mTargetMin = savedState.slippageMin;
+        mTargetMax = savedState.slippageMax;
+        layoutFrame(savedState.slippage, savedState.slippageMin, savedState.slippageMax, mFrame);
+        if (mSmoothing.isEnabled()) {
+            mSmoothing.setTarget(savedState.target, savedState.slippage, 0);
+        }
         invalidate();
     }
 
     public void setMaxValue(final float maxValue) {
-        mMaxValue = maxValue;
+        setStyle(mStyle.buildUpon().setMaxValue(maxValue).build());
     }
 }
@@ -0,0 +1,91 @@
+package com.slippagemeter.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame work outside the canvas: the layout of a frame, including value mapping, tint lookup, bubble bounds
+ * and statistics markers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameGeometryBenchmark {
+
+    private static final float MAX_VALUE = 10;
+    private static final float LENGTH_LINE = 351;
+    private static final int[] COLORS = new int[]{0xff1aca9c, 0xffd1f4eb, 0xfff7d7cf, 0xffd73611};
+    private static final float[] POSITIONS = new float[]{0.1f, 0.4f, 0.6f, 0.95f};
+    private static final float WIDTH_LINE = 18;
+    private static final float TEXT_PADDING = 15;
+    private static final float BUBBLE_STROKE_WIDTH = 7.5f;
+    private static final float SUFFIX_LENGTH = 60;
+
+    private SlippageLayout mLayout;
+    private SlippageStatistics mStatistics;
+    private final SlippageFrame mFrame = new SlippageFrame();
+    private final float[] mMarkers = new float[SlippageStatistics.MARKER_COUNT];
+    private float mSlippage;
+
+    @Setup
+    public void setUp() {
+        mLayout = new SlippageLayout(
+                new SlippageScale(MAX_VALUE, LENGTH_LINE),
+                new SlippageLabels(MAX_VALUE, new FixedTextMeasurer()),
+                new GradientColorTable(COLORS, POSITIONS, LENGTH_LINE),
+                WIDTH_LINE,
+                TEXT_PADDING,
+                BUBBLE_STROKE_WIDTH,
+                SUFFIX_LENGTH
+        );
+        mStatistics = new SlippageStatistics(MAX_VALUE, Long.MAX_VALUE / 1000000L, 4096);
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 4096; i++) {
+            mStatistics.add(i, (float) (random.nextGaussian() * MAX_VALUE / 3));
+        }
+        mStatistics.readMarkers(4096, mMarkers);
+    }
+
+    @Benchmark
+    public SlippageFrame layout() {
+        mSlippage = mSlippage > MAX_VALUE ? -MAX_VALUE : mSlippage + 0.037f;
+        mLayout.layout(mSlippage, mSlippage - 0.5f, mSlippage + 0.5f, mMarkers, mFrame);
+        return mFrame;
+    }
+
+    @Benchmark
+    public float[] statisticsMarkers() {
+        mStatistics.readMarkers(4096, mMarkers);
+        return mMarkers;
+    }
+
+    @Benchmark
+    public GradientColorTable buildColorTable() {
+        return new GradientColorTable(COLORS, POSITIONS, LENGTH_LINE);
+    }
+
+    static class FixedTextMeasurer implements SlippageLabels.TextMeasurer {
+        @Override
+        public float measureWidth(char[] text) {
+            return 20 * text.length;
+        }
+
+        @Override
+        public int measureHeight(char[] text) {
+            return 26;
+        }
+    }
+}
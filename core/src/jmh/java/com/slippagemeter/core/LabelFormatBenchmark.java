@@ -0,0 +1,56 @@
+package com.slippagemeter.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Label lookup from the quantized cache against formatting on every frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LabelFormatBenchmark {
+
+    private static final float MAX_VALUE = 10;
+
+    private SlippageLabels mLabels;
+    private float mSlippage;
+
+    @Setup
+    public void setUp() {
+        mLabels = new SlippageLabels(MAX_VALUE, new FrameGeometryBenchmark.FixedTextMeasurer());
+    }
+
+    @Benchmark
+    public char[] cachedLabel() {
+        return mLabels.getText(mLabels.indexOf(nextSlippage()));
+    }
+
+    @Benchmark
+    public String formattedLabel() {
+        return SlippageLabels.formatSlippage(nextSlippage());
+    }
+
+    @Benchmark
+    public SlippageLabels buildLabels() {
+        return new SlippageLabels(MAX_VALUE, new FrameGeometryBenchmark.FixedTextMeasurer());
+    }
+
+    private float nextSlippage() {
+        mSlippage = mSlippage > MAX_VALUE ? -MAX_VALUE : mSlippage + 0.037f;
+        return mSlippage;
+    }
+}
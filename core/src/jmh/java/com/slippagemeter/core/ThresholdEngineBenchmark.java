@@ -0,0 +1,69 @@
+package com.slippagemeter.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of evaluating one tick of a random symbol against its alert levels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ThresholdEngineBenchmark {
+
+    private static final int TICK_COUNT = 1024;
+    private static final int SYMBOL_COUNT = 256;
+    private static final float MAX_VALUE = 10;
+
+    @Param({"4", "64", "1024"})
+    public int levelsPerSymbol;
+
+    private final float[] mTicks = new float[TICK_COUNT];
+    private final int[] mSymbols = new int[TICK_COUNT];
+    private ThresholdEngine mEngine;
+    private int mIndex;
+    private int mCrossings;
+
+    @Setup
+    public void setUp() {
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < TICK_COUNT; i++) {
+            mTicks[i] = (float) (random.nextGaussian() * MAX_VALUE / 3);
+            mSymbols[i] = random.nextInt(SYMBOL_COUNT);
+        }
+        mEngine = new ThresholdEngine(SYMBOL_COUNT, new ThresholdEngine.Listener() {
+            @Override
+            public void onThresholdCrossed(int symbol, float level, boolean crossed, float slippage) {
+                mCrossings++;
+            }
+        });
+        float[] levels = new float[levelsPerSymbol];
+        for (int symbol = 0; symbol < SYMBOL_COUNT; symbol++) {
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = (random.nextFloat() * 2 - 1) * MAX_VALUE;
+            }
+            mEngine.setThresholds(symbol, new SlippageThresholds(levels, 0.2f));
+        }
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int i = mIndex++ & (TICK_COUNT - 1);
+        mEngine.onTick(mSymbols[i], mTicks[i]);
+        return mCrossings;
+    }
+}
@@ -0,0 +1,76 @@
+package com.slippagemeter.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded burst of one million ticks as fast as possible into the accumulator and statistics,
+ * the path every tick takes before reaching the view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TickReplayBenchmark {
+
+    private static final int TICK_COUNT = 1000000;
+    private static final float MAX_VALUE = 10;
+
+    private File mFile;
+    private TickReplayer mReplayer;
+    private final TickAccumulator mAccumulator = new TickAccumulator();
+    private final SlippageStatistics mStatistics = new SlippageStatistics(MAX_VALUE, 60000, 65536);
+    private final float[] mFrame = new float[3];
+
+    private final TickReplayer.Sink mSink = new TickReplayer.Sink() {
+        @Override
+        public void onTick(final long timeNanos, final float slippage) {
+            mAccumulator.offer(slippage);
+            mStatistics.add(timeNanos, slippage);
+        }
+    };
+
+    @Setup
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("ticks", ".bin");
+        TickRecorder recorder = new TickRecorder(mFile);
+        Random random = new Random(42);
+        long time = 0;
+        for (int i = 0; i < TICK_COUNT; i++) {
+            time += 1000 + random.nextInt(100000);
+            recorder.record(time, (float) (random.nextGaussian() * MAX_VALUE / 3));
+        }
+        recorder.close();
+        mReplayer = new TickReplayer(mFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mReplayer.close();
+        mFile.delete();
+    }
+
+    @Benchmark
+    public float[] replay() throws IOException {
+        mStatistics.clear();
+        mReplayer.replay(mSink, TickReplayer.AS_FAST_AS_POSSIBLE);
+        mAccumulator.drain(mFrame);
+        return mFrame;
+    }
+}
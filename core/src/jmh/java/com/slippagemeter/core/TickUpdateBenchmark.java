@@ -0,0 +1,70 @@
+package com.slippagemeter.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of ingesting one tick: envelope accumulation and rolling statistics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickUpdateBenchmark {
+
+    private static final int TICK_COUNT = 1024;
+    private static final float MAX_VALUE = 10;
+
+    private final float[] mTicks = new float[TICK_COUNT];
+    private TickAccumulator mAccumulator;
+    private SlippageStatistics mStatistics;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int mIndex;
+        long mTime;
+    }
+
+    @Setup
+    public void setUp() {
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < TICK_COUNT; i++) {
+            mTicks[i] = (float) (random.nextGaussian() * MAX_VALUE / 3);
+        }
+        mAccumulator = new TickAccumulator();
+        mStatistics = new SlippageStatistics(MAX_VALUE, 60000, 65536);
+    }
+
+    @Benchmark
+    public void accumulate(Cursor cursor) {
+        mAccumulator.offer(next(cursor));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void accumulateContended(Cursor cursor) {
+        mAccumulator.offer(next(cursor));
+    }
+
+    @Benchmark
+    public void recordStatistics(Cursor cursor) {
+        mStatistics.add(cursor.mTime += 1000, next(cursor));
+    }
+
+    private float next(Cursor cursor) {
+        return mTicks[cursor.mIndex++ & (TICK_COUNT - 1)];
+    }
+}
@@ -0,0 +1,55 @@
+package com.slippagemeter.core;
+
+/**
+ * Geometry of the avatar and slippage bubbles. The slippage bubble is anchored at the right edge of the
+ * gradient line; bounds are written as {left, top, right, bottom}.
+ */
+public final class BubbleGeometry {
+
+    public static final float BEVEL_ANGLE = 60;
+
+    private static final double BEVEL_TANGENT = Math.tan(BEVEL_ANGLE * Math.PI / 180);
+
+    private BubbleGeometry() {
+    }
+
+    public static float getAvatarBubbleWidth(float avatarRadius) {
+        return (float) (avatarRadius * (BEVEL_TANGENT + 1));
+    }
+
+    public static float getBubbleBevel(float radius) {
+        return (float) (radius * BEVEL_TANGENT);
+    }
+
+    public static int getBubbleHeight(int textHeight, float textPadding, float strokeWidth) {
+        return textHeight + (int) textPadding + (int) (2 * strokeWidth);
+    }
+
+    public static float getBubbleX(float x, float bubbleHeight, float strokeWidth) {
+        return x + bubbleHeight / 2 + strokeWidth;
+    }
+
+    public static float getBubbleY(float y, float strokeWidth) {
+        return y - strokeWidth / 2;
+    }
+
+    public static void getBubbleBounds(
+            float rightXLine,
+            float y,
+            int textHeight,
+            float textPadding,
+            float textLength,
+            float strokeWidth,
+            float[] bounds
+    ) {
+        int slippageTextHeight = textHeight + (int) textPadding;
+        float bubbleBevelLength = getBubbleBevel(slippageTextHeight / 2);
+        float x = getBubbleX(rightXLine + bubbleBevelLength, slippageTextHeight, strokeWidth);
+        float bubbleY = getBubbleY(y, strokeWidth);
+        float halfStroke = strokeWidth / 2;
+        bounds[0] = rightXLine;
+        bounds[1] = bubbleY - slippageTextHeight - halfStroke;
+        bounds[2] = x + textLength + slippageTextHeight / 2 + halfStroke;
+        bounds[3] = bubbleY + halfStroke;
+    }
+}
@@ -0,0 +1,76 @@
+package com.slippagemeter.core;
+
+/**
+ * Critically damped spring that moves a value toward a target without overshoot. The target may change at any
+ * time; the velocity carries over, so retargeting mid-flight stays smooth. Stepping is allocation-free.
+ */
+public final class CriticallyDampedSpring {
+
+    private static final float REST_DISTANCE = 1e-3f;
+    private static final float REST_VELOCITY = 1e-2f;
+
+    private float mSmoothingTime;
+    private float mPosition;
+    private float mVelocity;
+    private float mTarget;
+
+    /**
+     * @param smoothingTime approximate time in seconds to reach the target
+     */
+    public CriticallyDampedSpring(float smoothingTime) {
+        setSmoothingTime(smoothingTime);
+    }
+
+    public void setSmoothingTime(float smoothingTime) {
+        if (smoothingTime <= 0) {
+            throw new IllegalArgumentException("Smoothing time should be positive: " + smoothingTime);
+        }
+        mSmoothingTime = smoothingTime;
+    }
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    public float getTarget() {
+        return mTarget;
+    }
+
+    public void setTarget(float target) {
+        mTarget = target;
+    }
+
+    /**
+     * Jumps to {@code position} and rests there.
+     */
+    public void snapTo(float position) {
+        mPosition = position;
+        mTarget = position;
+        mVelocity = 0;
+    }
+
+    public boolean isAtRest() {
+        return mPosition == mTarget && mVelocity == 0;
+    }
+
+    /**
+     * Advances the spring by {@code seconds} and returns {@code true} once it has settled on the target.
+     */
+    public boolean step(float seconds) {
+        if (isAtRest()) {
+            return true;
+        }
+        float omega = 2 / mSmoothingTime;
+        float x = omega * seconds;
+        float decay = 1 / (1 + x + 0.48f * x * x + 0.235f * x * x * x);
+        float change = mPosition - mTarget;
+        float temp = (mVelocity + omega * change) * seconds;
+        mVelocity = (mVelocity - omega * temp) * decay;
+        mPosition = mTarget + (change + temp) * decay;
+        if (Math.abs(mPosition - mTarget) < REST_DISTANCE && Math.abs(mVelocity) < REST_VELOCITY) {
+            snapTo(mTarget);
+            return true;
+        }
+        return false;
+    }
+}
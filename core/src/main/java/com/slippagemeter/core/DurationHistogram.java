@@ -0,0 +1,94 @@
+package com.slippagemeter.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket histogram of durations. Bucket i counts durations below 2^i microseconds, the last bucket
+ * everything longer. Recording is O(1) and allocation-free; reads and copies may come from any thread.
+ */
+public final class DurationHistogram {
+
+    public static final int BUCKET_COUNT = 24;
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        mCounts[getBucket(nanos)]++;
+        mCount++;
+        mTotalNanos += nanos;
+        if (nanos > mMaxNanos) {
+            mMaxNanos = nanos;
+        }
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(mCounts, 0);
+        mCount = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    /**
+     * Overwrites {@code target} with the current contents of this histogram.
+     */
+    public synchronized void copyTo(DurationHistogram target) {
+        if (target == this) {
+            return;
+        }
+        System.arraycopy(mCounts, 0, target.mCounts, 0, BUCKET_COUNT);
+        target.mCount = mCount;
+        target.mTotalNanos = mTotalNanos;
+        target.mMaxNanos = mMaxNanos;
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    public synchronized long getCount(int bucket) {
+        return mCounts[bucket];
+    }
+
+    public synchronized long getMeanNanos() {
+        return mCount == 0 ? 0 : mTotalNanos / mCount;
+    }
+
+    public synchronized long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, at most the longest recorded duration.
+     */
+    public synchronized long getPercentileNanos(float percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(mCount * Math.min(Math.max(percentile, 0), 100) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(getUpperBoundNanos(i), mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    public static long getUpperBoundNanos(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) * NANOS_PER_MICRO;
+    }
+
+    static int getBucket(long nanos) {
+        long micros = nanos / NANOS_PER_MICRO;
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+}
@@ -0,0 +1,65 @@
+package com.slippagemeter.core;
+
+/**
+ * Colours of a vertical gradient sampled once per pixel, matching a clamped {@code LinearGradient}
+ * built from the same colours and positions.
+ */
+public final class GradientColorTable {
+
+    private final int[] mTable;
+
+    public GradientColorTable(int[] colors, float[] positions, float length) {
+        int size = Math.max(1, (int) Math.ceil(length) + 1);
+        mTable = new int[size];
+        int stop = 0;
+        for (int y = 0; y < size; y++) {
+            float position = size == 1 ? 0 : y / length;
+            while (stop < positions.length - 1 && position > positions[stop + 1]) {
+                stop++;
+            }
+            mTable[y] = getColor(colors, positions, stop, position);
+        }
+    }
+
+    /**
+     * Number of sampled pixels, one more than the gradient length.
+     */
+    public int size() {
+        return mTable.length;
+    }
+
+    public int get(float y) {
+        int index = (int) (y + 0.5f);
+        if (index < 0) {
+            return mTable[0];
+        }
+        if (index >= mTable.length) {
+            return mTable[mTable.length - 1];
+        }
+        return mTable[index];
+    }
+
+    private static int getColor(int[] colors, float[] positions, int stop, float position) {
+        if (position <= positions[0]) {
+            return colors[0];
+        }
+        if (stop == positions.length - 1 || position >= positions[positions.length - 1]) {
+            return colors[colors.length - 1];
+        }
+        float percent = (position - positions[stop]) / (positions[stop + 1] - positions[stop]);
+        return getAverageColor(colors[stop], colors[stop + 1], percent);
+    }
+
+    private static int getAverageColor(int color1, int color2, float percent) {
+        int a = ave(color1 >>> 24, color2 >>> 24, percent);
+        int r = ave((color1 >> 16) & 0xff, (color2 >> 16) & 0xff, percent);
+        int g = ave((color1 >> 8) & 0xff, (color2 >> 8) & 0xff, percent);
+        int b = ave(color1 & 0xff, color2 & 0xff, percent);
+
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static int ave(int s, int d, float p) {
+        return Math.round(s + p * (d - s));
+    }
+}
@@ -0,0 +1,199 @@
+package com.slippagemeter.core;
+
+import java.util.Arrays;
+
+/**
+ * Slippage of many participants on one meter, quantized to 0.1-pip buckets. A Fenwick tree over the bucket
+ * counts keeps participants in sorted order, so setting or removing one participant is O(log B) and grouping
+ * nearby participants into clusters is O(log B) per cluster, independent of the number of participants.
+ * Participants are identified by ids from 0 to capacity - 1. Not thread-safe.
+ */
+public final class ParticipantMarkers {
+
+    private static final int NONE = -1;
+
+    private final int mMaxStep;
+    private final int mBucketCount;
+    private final int[] mTree;
+    private final int[] mHeads;
+    private final int[] mNext;
+    private final int[] mPrevious;
+    private final int[] mBuckets;
+    private final float[] mValues;
+    private int mSize;
+
+    public ParticipantMarkers(float maxValue, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        mMaxStep = SlippageLabels.getMaxStep(maxValue);
+        mBucketCount = 2 * mMaxStep + 1;
+        mTree = new int[mBucketCount + 1];
+        mHeads = new int[mBucketCount];
+        mNext = new int[capacity];
+        mPrevious = new int[capacity];
+        mBuckets = new int[capacity];
+        mValues = new float[capacity];
+        Arrays.fill(mHeads, NONE);
+        Arrays.fill(mBuckets, NONE);
+    }
+
+    public int capacity() {
+        return mBuckets.length;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getBucketCount() {
+        return mBucketCount;
+    }
+
+    public boolean contains(int id) {
+        return mBuckets[id] != NONE;
+    }
+
+    public float get(int id) {
+        return mValues[id];
+    }
+
+    /**
+     * Quantized slippage of {@code bucket}.
+     */
+    public float getBucketSlippage(int bucket) {
+        return SlippageLabels.getSlippage(bucket, mMaxStep);
+    }
+
+    /**
+     * Adds or moves participant {@code id}. Returns {@code true} if its bucket changed.
+     */
+    public boolean set(int id, float slippage) {
+        if (Float.isNaN(slippage)) {
+            return remove(id);
+        }
+        mValues[id] = slippage;
+        int bucket = getBucket(slippage);
+        int oldBucket = mBuckets[id];
+        if (bucket == oldBucket) {
+            return false;
+        }
+        if (oldBucket != NONE) {
+            unlink(id, oldBucket);
+        } else {
+            mSize++;
+        }
+        link(id, bucket);
+        return true;
+    }
+
+    public boolean remove(int id) {
+        int bucket = mBuckets[id];
+        if (bucket == NONE) {
+            return false;
+        }
+        unlink(id, bucket);
+        mBuckets[id] = NONE;
+        mSize--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(mTree, 0);
+        Arrays.fill(mHeads, NONE);
+        Arrays.fill(mBuckets, NONE);
+        mSize = 0;
+    }
+
+    /**
+     * Number of participants in buckets 0 to {@code bucket} inclusive.
+     */
+    public int countThrough(int bucket) {
+        int count = 0;
+        for (int i = Math.min(bucket, mBucketCount - 1) + 1; i > 0; i -= i & -i) {
+            count += mTree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Bucket of the participant with the given 0-based rank in ascending slippage order.
+     */
+    public int findBucket(int rank) {
+        int position = 0;
+        int remaining = rank;
+        for (int step = Integer.highestOneBit(mBucketCount); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= mBucketCount && mTree[next] <= remaining) {
+                position = next;
+                remaining -= mTree[next];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Groups participants whose buckets lie within {@code spanBuckets} of the first bucket of a group. For every
+     * cluster, in ascending slippage order, writes the bucket of its median participant, its size and its only
+     * participant or -1. A group whose median would be drawn closer than {@code spanBuckets} to the previous
+     * cluster joins it, so adjacent clusters are at least that far apart. Arrays should hold
+     * {@link #getBucketCount()} entries. Returns the number of clusters.
+     */
+    public int cluster(int spanBuckets, int[] buckets, int[] counts, int[] participants) {
+        int span = Math.max(1, spanBuckets);
+        int clusters = 0;
+        int start = 0;
+        int rank = 0;
+        while (rank < mSize) {
+            int first = findBucket(rank);
+            int end = countThrough(first + span - 1);
+            if (clusters > 0 && findBucket(rank + (end - rank - 1) / 2) - buckets[clusters - 1] < span) {
+                clusters--;
+            } else {
+                start = rank;
+            }
+            int count = end - start;
+            buckets[clusters] = findBucket(start + (count - 1) / 2);
+            counts[clusters] = count;
+            participants[clusters] = count == 1 ? mHeads[first] : NONE;
+            clusters++;
+            rank = end;
+        }
+        return clusters;
+    }
+
+    private void link(int id, int bucket) {
+        mBuckets[id] = bucket;
+        mPrevious[id] = NONE;
+        mNext[id] = mHeads[bucket];
+        if (mHeads[bucket] != NONE) {
+            mPrevious[mHeads[bucket]] = id;
+        }
+        mHeads[bucket] = id;
+        update(bucket, 1);
+    }
+
+    private void unlink(int id, int bucket) {
+        int previous = mPrevious[id];
+        int next = mNext[id];
+        if (previous != NONE) {
+            mNext[previous] = next;
+        } else {
+            mHeads[bucket] = next;
+        }
+        if (next != NONE) {
+            mPrevious[next] = previous;
+        }
+        update(bucket, -1);
+    }
+
+    private void update(int bucket, int delta) {
+        for (int i = bucket + 1; i <= mBucketCount; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    private int getBucket(float slippage) {
+        return SlippageLabels.indexOf(slippage, mMaxStep);
+    }
+}
@@ -0,0 +1,115 @@
+package com.slippagemeter.core;
+
+/**
+ * Draw list of one meter frame produced by {@link SlippageLayout}: the bubble bounds, envelope rectangle and
+ * statistics marker lines packed into one coordinate array, plus the bubble colour and label index. Frames are
+ * mutable and reused; a frame belongs to one thread at a time.
+ */
+public final class SlippageFrame {
+
+    public static final int BUBBLE_LEFT = 0;
+    public static final int BUBBLE_TOP = 1;
+    public static final int BUBBLE_RIGHT = 2;
+    public static final int BUBBLE_BOTTOM = 3;
+    public static final int BUBBLE_Y = 4;
+    public static final int ENVELOPE_LEFT = 5;
+    public static final int ENVELOPE_TOP = 6;
+    public static final int ENVELOPE_RIGHT = 7;
+    public static final int ENVELOPE_BOTTOM = 8;
+    public static final int MARKER_LINES = 9;
+
+    private static final int COORDINATE_COUNT = MARKER_LINES + 4 * SlippageStatistics.MARKER_COUNT;
+
+    final float[] mCoordinates = new float[COORDINATE_COUNT];
+    SlippageLayout mLayout;
+    float mSlippage;
+    float mSlippageMin;
+    float mSlippageMax;
+    int mLabelIndex;
+    int mBubbleHeight;
+    int mBubbleColor;
+    int mMarkerLineCount;
+    long mTickTimeNanos;
+
+    /**
+     * Coordinates relative to the top of the gradient line with x = 0 on its center.
+     */
+    public float[] getCoordinates() {
+        return mCoordinates;
+    }
+
+    public SlippageLayout getLayout() {
+        return mLayout;
+    }
+
+    public float getSlippage() {
+        return mSlippage;
+    }
+
+    public float getSlippageMin() {
+        return mSlippageMin;
+    }
+
+    public float getSlippageMax() {
+        return mSlippageMax;
+    }
+
+    public int getLabelIndex() {
+        return mLabelIndex;
+    }
+
+    public int getBubbleHeight() {
+        return mBubbleHeight;
+    }
+
+    public int getBubbleColor() {
+        return mBubbleColor;
+    }
+
+    public int getBubblePixelY() {
+        return (int) mCoordinates[BUBBLE_Y];
+    }
+
+    public boolean hasEnvelope() {
+        return mCoordinates[ENVELOPE_BOTTOM] > mCoordinates[ENVELOPE_TOP];
+    }
+
+    /**
+     * Number of floats used from {@link #MARKER_LINES}, four per line.
+     */
+    public int getMarkerLineCount() {
+        return mMarkerLineCount;
+    }
+
+    /**
+     * {@link System#nanoTime()} of the earliest tick shown by this frame that is not drawn yet, or 0.
+     */
+    public long getTickTimeNanos() {
+        return mTickTimeNanos;
+    }
+
+    public void setTickTimeNanos(long tickTimeNanos) {
+        mTickTimeNanos = tickTimeNanos;
+    }
+
+    public boolean hasSameBubble(SlippageFrame frame) {
+        return mLabelIndex == frame.mLabelIndex && getBubblePixelY() == frame.getBubblePixelY();
+    }
+
+    public boolean hasSameEnvelope(SlippageFrame frame) {
+        return mCoordinates[ENVELOPE_TOP] == frame.mCoordinates[ENVELOPE_TOP]
+                && mCoordinates[ENVELOPE_BOTTOM] == frame.mCoordinates[ENVELOPE_BOTTOM];
+    }
+
+    public boolean hasSameMarkers(SlippageFrame frame) {
+        if (mMarkerLineCount != frame.mMarkerLineCount) {
+            return false;
+        }
+        for (int i = MARKER_LINES + 1; i < MARKER_LINES + mMarkerLineCount; i += 4) {
+            if (mCoordinates[i] != frame.mCoordinates[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.slippagemeter.core;
+
+/**
+ * Fixed-capacity ring buffer of the most recent slippage values. Adding overwrites the oldest value once full
+ * and never allocates. Not thread-safe.
+ */
+public final class SlippageHistory {
+
+    private final float[] mValues;
+    private int mNext;
+    private int mSize;
+
+    public SlippageHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        mValues = new float[capacity];
+    }
+
+    public int capacity() {
+        return mValues.length;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void add(float slippage) {
+        mValues[mNext] = slippage;
+        mNext = (mNext + 1) % mValues.length;
+        if (mSize < mValues.length) {
+            mSize++;
+        }
+    }
+
+    /**
+     * Returns the value at {@code index}, where 0 is the oldest value kept.
+     */
+    public float get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mSize);
+        }
+        int start = mNext - mSize;
+        if (start < 0) {
+            start += mValues.length;
+        }
+        return mValues[(start + index) % mValues.length];
+    }
+
+    /**
+     * Copies the values into {@code values}, oldest first, and returns how many were copied.
+     */
+    public int copyTo(float[] values) {
+        int count = Math.min(mSize, values.length);
+        for (int i = 0; i < count; i++) {
+            values[i] = get(mSize - count + i);
+        }
+        return count;
+    }
+
+    public void clear() {
+        mNext = 0;
+        mSize = 0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.slippagemeter.core;
+
+/**
+ * Slippage labels quantized to 0.1 pips within [-maxValue, maxValue], formatted and measured once.
+ */
+public final class SlippageLabels {
+
+    public static final int STEPS_PER_PIP = 10;
+
+    /**
+     * Measures label text with the font the labels are drawn with.
+     */
+    public interface TextMeasurer {
+        float measureWidth(char[] text);
+
+        int measureHeight(char[] text);
+    }
+
+    private final int mMaxStep;
+    private final char[][] mTexts;
+    private final float[] mWidths;
+    private final int[] mHeights;
+
+    public SlippageLabels(float maxValue, TextMeasurer measurer) {
+        mMaxStep = getMaxStep(maxValue);
+        int count = 2 * mMaxStep + 1;
+        mTexts = new char[count][];
+        mWidths = new float[count];
+        mHeights = new int[count];
+        for (int i = 0; i < count; i++) {
+            char[] text = formatSlippage(getSlippage(i)).toCharArray();
+            mTexts[i] = text;
+            mWidths[i] = measurer.measureWidth(text);
+            mHeights[i] = measurer.measureHeight(text);
+        }
+    }
+
+    public static int getMaxStep(float maxValue) {
+        return (int) Math.ceil(Math.abs(maxValue) * STEPS_PER_PIP);
+    }
+
+    public static String formatSlippage(float v) {
+        return String.format("%.1f", v);
+    }
+
+    /**
+     * Index of the 0.1 pip step nearest to {@code slippage} among the 2 * maxStep + 1 steps of
+     * [-maxStep, maxStep], clamped to that range. Labels, statistics and markers all quantize through this.
+     */
+    public static int indexOf(float slippage, int maxStep) {
+        int step = Math.round(slippage * STEPS_PER_PIP);
+        if (step < -maxStep) {
+            step = -maxStep;
+        } else if (step > maxStep) {
+            step = maxStep;
+        }
+        return step + maxStep;
+    }
+
+    /**
+     * Quantized slippage of the step at {@code index}, the inverse of {@link #indexOf(float, int)}.
+     */
+    public static float getSlippage(int index, int maxStep) {
+        return (float) (index - maxStep) / STEPS_PER_PIP;
+    }
+
+    public int indexOf(float slippage) {
+        return indexOf(slippage, mMaxStep);
+    }
+
+    /**
+     * Quantized slippage shown by the label at {@code index}.
+     */
+    public float getSlippage(int index) {
+        return getSlippage(index, mMaxStep);
+    }
+
+    public int size() {
+        return mTexts.length;
+    }
+
+    public char[] getText(int index) {
+        return mTexts[index];
+    }
+
+    public float getWidth(int index) {
+        return mWidths[index];
+    }
+
+    public int getHeight(int index) {
+        return mHeights[index];
+    }
+}
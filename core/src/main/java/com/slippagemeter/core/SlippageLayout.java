@@ -0,0 +1,141 @@
+package com.slippagemeter.core;
+
+/**
+ * Turns slippage values into a {@link SlippageFrame} without touching any canvas. A layout is immutable and
+ * may be used from any thread, so frames can be computed off the UI thread and only replayed in onDraw.
+ */
+public final class SlippageLayout {
+
+    private final SlippageScale mScale;
+    private final SlippageLabels mLabels;
+    private final GradientColorTable mColorTable;
+    private final float mWidthLine;
+    private final float mTextPadding;
+    private final float mBubbleStrokeWidth;
+    private final float mSuffixLength;
+
+    public SlippageLayout(
+            SlippageScale scale,
+            SlippageLabels labels,
+            GradientColorTable colorTable,
+            float widthLine,
+            float textPadding,
+            float bubbleStrokeWidth,
+            float suffixLength
+    ) {
+        mScale = scale;
+        mLabels = labels;
+        mColorTable = colorTable;
+        mWidthLine = widthLine;
+        mTextPadding = textPadding;
+        mBubbleStrokeWidth = bubbleStrokeWidth;
+        mSuffixLength = suffixLength;
+    }
+
+    public SlippageScale getScale() {
+        return mScale;
+    }
+
+    public SlippageLabels getLabels() {
+        return mLabels;
+    }
+
+    public int getBubbleHeight(int labelIndex) {
+        return BubbleGeometry.getBubbleHeight(mLabels.getHeight(labelIndex), mTextPadding, mBubbleStrokeWidth);
+    }
+
+    /**
+     * Height of the tallest bubble, for views that reserve room for any value.
+     */
+    public int getMaxBubbleHeight() {
+        int height = 0;
+        for (int i = 0; i < mLabels.size(); i++) {
+            height = Math.max(height, getBubbleHeight(i));
+        }
+        return height;
+    }
+
+    public float getStatisticsMarkerLeft() {
+        return -1.5f * mWidthLine;
+    }
+
+    public float getStatisticsMarkerRight() {
+        return 1.5f * mWidthLine;
+    }
+
+    /**
+     * Lays out the bubble at {@code slippage}, the envelope between {@code min} and {@code max} and one line
+     * per non-NaN entry of {@code markers}, which may be {@code null}. Values are clamped to the meter range.
+     */
+    public void layout(float slippage, float min, float max, float[] markers, SlippageFrame frame) {
+        layout(slippage, min, max, markers, 0, frame);
+    }
+
+    /**
+     * Like {@link #layout(float, float, float, float[], SlippageFrame)}, first rounding the slippage, minimum and
+     * maximum to multiples of {@code step} unless it is 0.
+     */
+    public void layout(float slippage, float min, float max, float[] markers, float step, SlippageFrame frame) {
+        slippage = mScale.clampSlippage(quantize(slippage, step));
+        min = mScale.clampSlippage(quantize(min, step));
+        max = mScale.clampSlippage(quantize(max, step));
+        float[] coordinates = frame.mCoordinates;
+        int pixelY = toPixelY(slippage);
+        int labelIndex = mLabels.indexOf(slippage);
+
+        frame.mLayout = this;
+        frame.mSlippage = slippage;
+        frame.mSlippageMin = min;
+        frame.mSlippageMax = max;
+        frame.mLabelIndex = labelIndex;
+        frame.mBubbleHeight = getBubbleHeight(labelIndex);
+        frame.mBubbleColor = mColorTable.get(pixelY);
+
+        BubbleGeometry.getBubbleBounds(
+                Math.round(mWidthLine / 2),
+                pixelY,
+                mLabels.getHeight(labelIndex),
+                mTextPadding,
+                mLabels.getWidth(labelIndex) + mSuffixLength,
+                mBubbleStrokeWidth,
+                coordinates
+        );
+        coordinates[SlippageFrame.BUBBLE_Y] = pixelY;
+
+        coordinates[SlippageFrame.ENVELOPE_LEFT] = -mWidthLine;
+        coordinates[SlippageFrame.ENVELOPE_TOP] = toPixelY(max);
+        coordinates[SlippageFrame.ENVELOPE_RIGHT] = mWidthLine;
+        coordinates[SlippageFrame.ENVELOPE_BOTTOM] = toPixelY(min);
+
+        frame.mMarkerLineCount = layoutMarkers(markers, coordinates);
+    }
+
+    private int layoutMarkers(float[] markers, float[] coordinates) {
+        if (markers == null) {
+            return 0;
+        }
+        float left = getStatisticsMarkerLeft();
+        float right = getStatisticsMarkerRight();
+        int index = SlippageFrame.MARKER_LINES;
+        int count = Math.min(markers.length, SlippageStatistics.MARKER_COUNT);
+        for (int i = 0; i < count; i++) {
+            if (Float.isNaN(markers[i])) {
+                continue;
+            }
+            int y = toPixelY(mScale.clampSlippage(markers[i]));
+            coordinates[index++] = left;
+            coordinates[index++] = y;
+            coordinates[index++] = right;
+            coordinates[index++] = y;
+        }
+        return index - SlippageFrame.MARKER_LINES;
+    }
+
+    private static float quantize(float slippage, float step) {
+        return step > 0 ? Math.round(slippage / step) * step : slippage;
+    }
+
+    private int toPixelY(float slippage) {
+        return Math.round(mScale.convertSlippageLevelToYCoordinate(slippage));
+    }
+}
@@ -0,0 +1,36 @@
+package com.slippagemeter.core;
+
+/**
+ * Maps slippage in [-maxValue, maxValue] to a y coordinate along a gradient line of the given length,
+ * with maxValue at the top.
+ */
+public final class SlippageScale {
+
+    private final float mMaxValue;
+    private final float mLengthLine;
+
+    public SlippageScale(float maxValue, float lengthLine) {
+        mMaxValue = maxValue;
+        mLengthLine = lengthLine;
+    }
+
+    public float getMaxValue() {
+        return mMaxValue;
+    }
+
+    public float getLengthLine() {
+        return mLengthLine;
+    }
+
+    public float clampSlippage(float slippage) {
+        return Math.max(-mMaxValue, Math.min(mMaxValue, slippage));
+    }
+
+    public float convertYCoordinateToSlippage(float yCoordinate) {
+        return mMaxValue * (1 - 2 * yCoordinate / mLengthLine);
+    }
+
+    public float convertSlippageLevelToYCoordinate(float slippage) {
+        return mLengthLine * (mMaxValue - slippage) / 2 / mMaxValue;
+    }
+}
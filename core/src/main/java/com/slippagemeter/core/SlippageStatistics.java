@@ -0,0 +1,190 @@
+package com.slippagemeter.core;
+
+import java.util.Arrays;
+
+/**
+ * Rolling slippage statistics over a time window. Values are kept in primitive ring buffers and a 0.1-pip
+ * histogram over [-maxValue, maxValue], so memory is fixed and {@link #add(long, float)} is O(1) amortized.
+ * Safe to feed from one thread while the meter reads markers from another.
+ */
+public class SlippageStatistics {
+
+    public static final int MEAN = 0;
+    public static final int EWMA = 1;
+    public static final int P50 = 2;
+    public static final int P95 = 3;
+    public static final int P99 = 4;
+    public static final int MARKER_COUNT = 5;
+
+    private static final float DEFAULT_EWMA_ALPHA = 0.1f;
+
+    private final int mMaxStep;
+    private final long mWindowNanos;
+    private final float mEwmaAlpha;
+    private final int[] mHistogram;
+    private final long[] mTimes;
+    private final float[] mValues;
+    private final int[] mBuckets;
+    private int mTail;
+    private int mSize;
+    private double mSum;
+    private float mEwma = Float.NaN;
+
+    public SlippageStatistics(float maxValue, long windowMillis, int capacity) {
+        this(maxValue, windowMillis, capacity, DEFAULT_EWMA_ALPHA);
+    }
+
+    public SlippageStatistics(float maxValue, long windowMillis, int capacity, float ewmaAlpha) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+            throw new IllegalArgumentException("EWMA alpha should be from (0,1]: " + ewmaAlpha);
+        }
+        mMaxStep = SlippageLabels.getMaxStep(maxValue);
+        mWindowNanos = windowMillis * 1000000L;
+        mEwmaAlpha = ewmaAlpha;
+        mHistogram = new int[2 * mMaxStep + 1];
+        mTimes = new long[capacity];
+        mValues = new float[capacity];
+        mBuckets = new int[capacity];
+    }
+
+    public void add(float slippage) {
+        add(System.nanoTime(), slippage);
+    }
+
+    public synchronized void add(long timeNanos, float slippage) {
+        if (Float.isNaN(slippage)) {
+            return;
+        }
+        evictBefore(timeNanos - mWindowNanos);
+        if (mSize == mTimes.length) {
+            evictOldest();
+        }
+        int index = (mTail + mSize) % mTimes.length;
+        int bucket = getBucket(slippage);
+        mTimes[index] = timeNanos;
+        mValues[index] = slippage;
+        mBuckets[index] = bucket;
+        mHistogram[bucket]++;
+        mSize++;
+        mSum += slippage;
+        mEwma = Float.isNaN(mEwma) ? slippage : mEwma + mEwmaAlpha * (slippage - mEwma);
+    }
+
+    /**
+     * Fills {@code markers} with {@link #MARKER_COUNT} values indexed by {@link #MEAN}, {@link #EWMA},
+     * {@link #P50}, {@link #P95} and {@link #P99}. Values are {@code NaN} while the window is empty.
+     */
+    public void readMarkers(float[] markers) {
+        readMarkers(System.nanoTime(), markers);
+    }
+
+    public synchronized void readMarkers(long timeNanos, float[] markers) {
+        evictBefore(timeNanos - mWindowNanos);
+        if (mSize == 0) {
+            Arrays.fill(markers, 0, MARKER_COUNT, Float.NaN);
+            return;
+        }
+        markers[MEAN] = (float) (mSum / mSize);
+        markers[EWMA] = mEwma;
+        int p50Rank = getRank(0.50f);
+        int p95Rank = getRank(0.95f);
+        int p99Rank = getRank(0.99f);
+        int count = 0;
+        int bucket = 0;
+        for (; count < p50Rank; bucket++) {
+            count += mHistogram[bucket];
+        }
+        markers[P50] = getSlippage(bucket - 1);
+        for (; count < p95Rank; bucket++) {
+            count += mHistogram[bucket];
+        }
+        markers[P95] = getSlippage(bucket - 1);
+        for (; count < p99Rank; bucket++) {
+            count += mHistogram[bucket];
+        }
+        markers[P99] = getSlippage(bucket - 1);
+    }
+
+    public int capacity() {
+        return mTimes.length;
+    }
+
+    /**
+     * Returns the number of values in the window at {@code timeNanos}.
+     */
+    public synchronized int size(long timeNanos) {
+        evictBefore(timeNanos - mWindowNanos);
+        return mSize;
+    }
+
+    public synchronized float getEwma() {
+        return mEwma;
+    }
+
+    /**
+     * Copies the values in the window, oldest first, with their age at {@code timeNanos}. If the arrays are
+     * shorter than {@link #size(long)}, the newest values that fit are copied. Returns the number of values copied.
+     */
+    public synchronized int save(long timeNanos, long[] ages, float[] values) {
+        evictBefore(timeNanos - mWindowNanos);
+        int count = Math.min(mSize, Math.min(ages.length, values.length));
+        int skip = mSize - count;
+        for (int i = 0; i < count; i++) {
+            int index = (mTail + skip + i) % mTimes.length;
+            ages[i] = timeNanos - mTimes[index];
+            values[i] = mValues[index];
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the contents with values saved by {@link #save(long, long[], float[])}, aged relative to
+     * {@code timeNanos}, and continues the EWMA from {@code ewma}.
+     */
+    public synchronized void restore(long timeNanos, long[] ages, float[] values, int count, float ewma) {
+        clear();
+        for (int i = Math.max(0, count - mTimes.length); i < count; i++) {
+            add(timeNanos - ages[i], values[i]);
+        }
+        mEwma = ewma;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(mHistogram, 0);
+        mTail = 0;
+        mSize = 0;
+        mSum = 0;
+        mEwma = Float.NaN;
+    }
+
+    private void evictBefore(long timeNanos) {
+        while (mSize > 0 && mTimes[mTail] - timeNanos < 0) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        mHistogram[mBuckets[mTail]]--;
+        mSum -= mValues[mTail];
+        mTail = (mTail + 1) % mTimes.length;
+        mSize--;
+        if (mSize == 0) {
+            mSum = 0;
+        }
+    }
+
+    private int getRank(float percentile) {
+        return Math.max(1, (int) Math.ceil(percentile * mSize));
+    }
+
+    private int getBucket(float slippage) {
+        return SlippageLabels.indexOf(slippage, mMaxStep);
+    }
+
+    private float getSlippage(int bucket) {
+        return SlippageLabels.getSlippage(bucket, mMaxStep);
+    }
+}
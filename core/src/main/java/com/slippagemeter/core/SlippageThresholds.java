@@ -0,0 +1,122 @@
+package com.slippagemeter.core;
+
+import java.util.Arrays;
+
+/**
+ * Alert levels of one symbol, sorted once into a primitive array. A level at or above zero is crossed when
+ * slippage reaches it and released when slippage falls more than the hysteresis below it; a negative level
+ * mirrors that. Crossed levels always form one run around zero, so a tick is evaluated with four binary
+ * searches whatever the number of levels. Evaluated by one thread at a time; crossed levels may be read from
+ * any thread.
+ */
+public final class SlippageThresholds {
+
+    private final float[] mLevels;
+    private final float mHysteresis;
+    private final int mZeroIndex;
+    private volatile int mCrossedStart;
+    private volatile int mCrossedEnd;
+
+    public SlippageThresholds(float[] levels, float hysteresis) {
+        if (hysteresis < 0) {
+            throw new IllegalArgumentException("Hysteresis should not be negative: " + hysteresis);
+        }
+        mLevels = levels.clone();
+        Arrays.sort(mLevels);
+        mHysteresis = hysteresis;
+        mZeroIndex = lowerBound(0, mLevels.length, 0);
+        mCrossedStart = mZeroIndex;
+        mCrossedEnd = mZeroIndex;
+    }
+
+    public int size() {
+        return mLevels.length;
+    }
+
+    public float getLevel(int index) {
+        return mLevels[index];
+    }
+
+    public float getHysteresis() {
+        return mHysteresis;
+    }
+
+    /**
+     * First index of the run of crossed levels.
+     */
+    public int getCrossedStart() {
+        return mCrossedStart;
+    }
+
+    /**
+     * Index after the run of crossed levels; equal to {@link #getCrossedStart()} if none is crossed.
+     */
+    public int getCrossedEnd() {
+        return mCrossedEnd;
+    }
+
+    public boolean isCrossed(int index) {
+        return index >= mCrossedStart && index < mCrossedEnd;
+    }
+
+    /**
+     * Updates crossed levels for {@code slippage} and reports every level crossed or released to
+     * {@code listener}, innermost first when crossing and outermost first when releasing.
+     */
+    synchronized void evaluate(int symbol, float slippage, ThresholdEngine.Listener listener) {
+        if (Float.isNaN(slippage)) {
+            return;
+        }
+        int end = mCrossedEnd;
+        int crossedEnd = upperBound(mZeroIndex, mLevels.length, slippage);
+        int keptEnd = Math.max(crossedEnd, Math.min(end, upperBound(mZeroIndex, mLevels.length, slippage + mHysteresis)));
+        mCrossedEnd = keptEnd;
+        for (int i = end; i < keptEnd; i++) {
+            listener.onThresholdCrossed(symbol, mLevels[i], true, slippage);
+        }
+        for (int i = end - 1; i >= keptEnd; i--) {
+            listener.onThresholdCrossed(symbol, mLevels[i], false, slippage);
+        }
+
+        int start = mCrossedStart;
+        int crossedStart = lowerBound(0, mZeroIndex, slippage);
+        int keptStart = Math.min(crossedStart, Math.max(start, lowerBound(0, mZeroIndex, slippage - mHysteresis)));
+        mCrossedStart = keptStart;
+        for (int i = start - 1; i >= keptStart; i--) {
+            listener.onThresholdCrossed(symbol, mLevels[i], true, slippage);
+        }
+        for (int i = start; i < keptStart; i++) {
+            listener.onThresholdCrossed(symbol, mLevels[i], false, slippage);
+        }
+    }
+
+    /**
+     * First index in [from, to) whose level is not below {@code value}.
+     */
+    private int lowerBound(int from, int to, float value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (mLevels[middle] < value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * First index in [from, to) whose level is above {@code value}.
+     */
+    private int upperBound(int from, int to, float value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (mLevels[middle] <= value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+}
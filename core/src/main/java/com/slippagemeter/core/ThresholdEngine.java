@@ -0,0 +1,52 @@
+package com.slippagemeter.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Evaluates the alert levels of many symbols on the thread that delivers their ticks. Symbols are identified
+ * by ids from 0 to symbolCount - 1. Evaluating a tick is O(log L) in the number of levels of its symbol and
+ * allocation-free; levels may be replaced from any thread.
+ */
+public final class ThresholdEngine {
+
+    public interface Listener {
+        /**
+         * Called on the ticking thread, so keep it short and hand work off to other threads.
+         *
+         * @param crossed {@code true} when slippage moved beyond {@code level}, {@code false} when it came back
+         *                by more than the hysteresis
+         */
+        void onThresholdCrossed(int symbol, float level, boolean crossed, float slippage);
+    }
+
+    private final AtomicReferenceArray<SlippageThresholds> mThresholds;
+    private final Listener mListener;
+
+    public ThresholdEngine(int symbolCount, Listener listener) {
+        mThresholds = new AtomicReferenceArray<SlippageThresholds>(symbolCount);
+        mListener = listener;
+    }
+
+    public int getSymbolCount() {
+        return mThresholds.length();
+    }
+
+    /**
+     * Pass {@code null} to stop alerting for {@code symbol}. Share {@code thresholds} with the symbol's meter to
+     * highlight its crossed levels.
+     */
+    public void setThresholds(int symbol, SlippageThresholds thresholds) {
+        mThresholds.set(symbol, thresholds);
+    }
+
+    public SlippageThresholds getThresholds(int symbol) {
+        return mThresholds.get(symbol);
+    }
+
+    public void onTick(int symbol, float slippage) {
+        SlippageThresholds thresholds = mThresholds.get(symbol);
+        if (thresholds != null) {
+            thresholds.evaluate(symbol, slippage, mListener);
+        }
+    }
+}
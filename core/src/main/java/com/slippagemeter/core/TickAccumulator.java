@@ -0,0 +1,53 @@
+package com.slippagemeter.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free accumulator of the latest, minimum and maximum slippage offered between two drains. Any thread
+ * may offer; one consumer drains. Every offer is O(1) and allocation-free.
+ */
+public final class TickAccumulator {
+
+    private static final int EMPTY = Float.floatToRawIntBits(Float.NaN);
+
+    private final AtomicInteger mLatest = new AtomicInteger(EMPTY);
+    private final AtomicInteger mMin = new AtomicInteger(EMPTY);
+    private final AtomicInteger mMax = new AtomicInteger(EMPTY);
+
+    public void offer(float slippage) {
+        accumulate(mMin, slippage, true);
+        accumulate(mMax, slippage, false);
+        mLatest.set(Float.floatToRawIntBits(slippage));
+    }
+
+    /**
+     * Writes {latest, min, max} into {@code out} and resets min and max. The envelope always contains the
+     * latest value, even when an offer races with the drain. Returns {@code false} if nothing was offered yet.
+     */
+    public boolean drain(float[] out) {
+        float min = Float.intBitsToFloat(mMin.getAndSet(EMPTY));
+        float max = Float.intBitsToFloat(mMax.getAndSet(EMPTY));
+        float latest = Float.intBitsToFloat(mLatest.get());
+        if (Float.isNaN(latest)) {
+            return false;
+        }
+        out[0] = latest;
+        out[1] = Float.isNaN(min) ? latest : Math.min(min, latest);
+        out[2] = Float.isNaN(max) ? latest : Math.max(max, latest);
+        return true;
+    }
+
+    private static void accumulate(AtomicInteger slot, float slippage, boolean min) {
+        int bits = Float.floatToRawIntBits(slippage);
+        while (true) {
+            int current = slot.get();
+            float value = Float.intBitsToFloat(current);
+            if (!Float.isNaN(value) && (min ? value <= slippage : value >= slippage)) {
+                return;
+            }
+            if (slot.compareAndSet(current, bits)) {
+                return;
+            }
+        }
+    }
+}
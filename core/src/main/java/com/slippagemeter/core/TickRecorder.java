@@ -0,0 +1,69 @@
+package com.slippagemeter.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends ticks to a binary tick file: an 8-byte header followed by one 12-byte record per tick holding the
+ * timestamp in nanoseconds and the slippage. Records are batched in a direct buffer; recording may be called
+ * from any thread and does not allocate.
+ */
+public final class TickRecorder implements Closeable {
+
+    static final int MAGIC = 0x534c5054;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 12;
+
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final FileChannel mChannel;
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE);
+    private long mCount;
+
+    public TickRecorder(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        mChannel = randomAccessFile.getChannel();
+        try {
+            mChannel.truncate(0);
+            mBuffer.putInt(MAGIC).putInt(VERSION);
+            flush();
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    public synchronized void record(long timeNanos, float slippage) throws IOException {
+        if (mBuffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        mBuffer.putLong(timeNanos).putFloat(slippage);
+        mCount++;
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    public synchronized void flush() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mChannel.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.slippagemeter.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a file written by {@link TickRecorder}. The file is memory-mapped a region at a time, so sessions of
+ * any length are replayed without reading them into the heap. Ticks are delivered on the calling thread at the
+ * recorded pace scaled by a speed factor, or as fast as possible.
+ */
+public final class TickReplayer implements Closeable {
+
+    public static final float REAL_TIME = 1;
+    public static final float AS_FAST_AS_POSSIBLE = Float.POSITIVE_INFINITY;
+
+    static final long REGION_RECORDS = 1 << 22;
+
+    public interface Sink {
+        void onTick(long timeNanos, float slippage);
+    }
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final long mCount;
+    private volatile boolean mCancelled;
+
+    public TickReplayer(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "r");
+        mChannel = mFile.getChannel();
+        try {
+            long size = mChannel.size();
+            if (size < TickRecorder.HEADER_SIZE) {
+                throw new IOException("Not a tick file: " + file);
+            }
+            MappedByteBuffer header = mChannel.map(FileChannel.MapMode.READ_ONLY, 0, TickRecorder.HEADER_SIZE);
+            if (header.getInt() != TickRecorder.MAGIC) {
+                throw new IOException("Not a tick file: " + file);
+            }
+            int version = header.getInt();
+            if (version != TickRecorder.VERSION) {
+                throw new IOException("Unsupported tick file version: " + version);
+            }
+            mCount = (size - TickRecorder.HEADER_SIZE) / TickRecorder.RECORD_SIZE;
+        } catch (IOException e) {
+            mFile.close();
+            throw e;
+        }
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Stops {@link #replay(Sink, float)} from another thread, including a replay that has not started yet. A
+     * cancelled replayer stays cancelled; open a new one to replay again.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Delivers every tick to {@code sink}. With {@code speed} 2 a recorded second takes half a second;
+     * {@link #AS_FAST_AS_POSSIBLE} skips all waiting. Returns the number of ticks delivered, fewer than
+     * {@link #getCount()} if cancelled or interrupted.
+     */
+    public long replay(Sink sink, float speed) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed should be positive: " + speed);
+        }
+        boolean paced = !Float.isInfinite(speed);
+        long startNanos = System.nanoTime();
+        long firstTimeNanos = 0;
+        long delivered = 0;
+        for (long region = 0; region < mCount; region += REGION_RECORDS) {
+            long records = Math.min(REGION_RECORDS, mCount - region);
+            MappedByteBuffer buffer = mChannel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    TickRecorder.HEADER_SIZE + region * TickRecorder.RECORD_SIZE,
+                    records * TickRecorder.RECORD_SIZE
+            );
+            for (long i = 0; i < records; i++) {
+                if (mCancelled || Thread.currentThread().isInterrupted()) {
+                    return delivered;
+                }
+                long timeNanos = buffer.getLong();
+                float slippage = buffer.getFloat();
+                if (delivered == 0) {
+                    firstTimeNanos = timeNanos;
+                }
+                if (paced) {
+                    waitUntil(startNanos + (long) ((timeNanos - firstTimeNanos) / speed));
+                }
+                sink.onTick(timeNanos, slippage);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.slippagemeter.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GradientColorTableTest {
+
+    private static final int BLACK = 0xff000000;
+    private static final int WHITE = 0xffffffff;
+    private static final int RED = 0xffff0000;
+
+    private final GradientColorTable mTable = new GradientColorTable(
+            new int[]{BLACK, WHITE}, new float[]{0.25f, 0.75f}, 100);
+
+    @Test
+    public void sizeIsOneMoreThanTheLength() {
+        assertEquals(101, mTable.size());
+        assertEquals(101, new GradientColorTable(new int[]{BLACK, WHITE}, new float[]{0, 1}, 100.0f).size());
+        assertEquals(102, new GradientColorTable(new int[]{BLACK, WHITE}, new float[]{0, 1}, 100.5f).size());
+    }
+
+    @Test
+    public void colorsBeforeTheFirstStopAreTheFirstColor() {
+        assertEquals(BLACK, mTable.get(0));
+        assertEquals(BLACK, mTable.get(24));
+        assertEquals(BLACK, mTable.get(25));
+    }
+
+    @Test
+    public void colorsAfterTheLastStopAreTheLastColor() {
+        assertEquals(WHITE, mTable.get(75));
+        assertEquals(WHITE, mTable.get(100));
+    }
+
+    @Test
+    public void colorsBetweenStopsAreInterpolated() {
+        assertEquals(0xff808080, mTable.get(50));
+        assertEquals(0xff050505, mTable.get(26));
+        assertEquals(0xfffafafa, mTable.get(74));
+    }
+
+    @Test
+    public void lookupRoundsAndClamps() {
+        assertEquals(mTable.get(50), mTable.get(49.5f));
+        assertEquals(mTable.get(49), mTable.get(49.49f));
+        assertEquals(BLACK, mTable.get(-10));
+        assertEquals(WHITE, mTable.get(1000));
+    }
+
+    @Test
+    public void innerStopIsHitExactly() {
+        GradientColorTable table = new GradientColorTable(
+                new int[]{BLACK, RED, WHITE}, new float[]{0, 0.5f, 1}, 100);
+        assertEquals(BLACK, table.get(0));
+        assertEquals(RED, table.get(50));
+        assertEquals(0xff800000, table.get(25));
+        assertEquals(0xffff8080, table.get(75));
+        assertEquals(WHITE, table.get(100));
+    }
+
+    @Test
+    public void alphaIsInterpolated() {
+        GradientColorTable table = new GradientColorTable(
+                new int[]{0x00ff0000, RED}, new float[]{0, 1}, 2);
+        assertEquals(0x80ff0000, table.get(1));
+    }
+
+    @Test
+    public void zeroLengthHasOneColor() {
+        GradientColorTable table = new GradientColorTable(new int[]{RED, WHITE}, new float[]{0, 1}, 0);
+        assertEquals(1, table.size());
+        assertEquals(RED, table.get(0));
+        assertEquals(RED, table.get(5));
+    }
+}
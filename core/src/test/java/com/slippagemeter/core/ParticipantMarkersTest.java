@@ -0,0 +1,189 @@
+package com.slippagemeter.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParticipantMarkersTest {
+
+    private static final float MAX_VALUE = 1;
+    private static final int ZERO_BUCKET = 10;
+
+    private ParticipantMarkers mMarkers;
+    private int[] mBuckets;
+    private int[] mCounts;
+    private int[] mParticipants;
+
+    @Before
+    public void setUp() {
+        mMarkers = new ParticipantMarkers(MAX_VALUE, 8);
+        mBuckets = new int[mMarkers.getBucketCount()];
+        mCounts = new int[mMarkers.getBucketCount()];
+        mParticipants = new int[mMarkers.getBucketCount()];
+    }
+
+    @Test
+    public void bucketsAreTenthsOfAPipClampedToTheRange() {
+        assertEquals(21, mMarkers.getBucketCount());
+        mMarkers.set(0, 0.04f);
+        mMarkers.set(1, 0.26f);
+        mMarkers.set(2, -5);
+        mMarkers.set(3, 5);
+        assertEquals(ZERO_BUCKET, mMarkers.findBucket(1));
+        assertEquals(ZERO_BUCKET + 3, mMarkers.findBucket(2));
+        assertEquals(0, mMarkers.findBucket(0));
+        assertEquals(20, mMarkers.findBucket(3));
+        assertEquals(0.3f, mMarkers.getBucketSlippage(ZERO_BUCKET + 3), 1e-6f);
+    }
+
+    @Test
+    public void addCountsParticipantsInRankOrder() {
+        mMarkers.set(0, 0.5f);
+        mMarkers.set(1, -0.5f);
+        mMarkers.set(2, 0.5f);
+        assertEquals(3, mMarkers.size());
+        assertEquals(0, mMarkers.countThrough(ZERO_BUCKET - 6));
+        assertEquals(1, mMarkers.countThrough(ZERO_BUCKET - 5));
+        assertEquals(1, mMarkers.countThrough(ZERO_BUCKET + 4));
+        assertEquals(3, mMarkers.countThrough(ZERO_BUCKET + 5));
+        assertEquals(3, mMarkers.countThrough(100));
+        assertEquals(ZERO_BUCKET - 5, mMarkers.findBucket(0));
+        assertEquals(ZERO_BUCKET + 5, mMarkers.findBucket(1));
+        assertEquals(ZERO_BUCKET + 5, mMarkers.findBucket(2));
+    }
+
+    @Test
+    public void moveWithinABucketChangesNothing() {
+        assertTrue(mMarkers.set(0, 0.3f));
+        assertFalse(mMarkers.set(0, 0.32f));
+        assertEquals(0.32f, mMarkers.get(0), 0);
+        assertEquals(1, mMarkers.size());
+    }
+
+    @Test
+    public void moveUpdatesCounts() {
+        mMarkers.set(0, -1);
+        mMarkers.set(1, 0);
+        assertTrue(mMarkers.set(0, 1));
+        assertEquals(2, mMarkers.size());
+        assertEquals(0, mMarkers.countThrough(ZERO_BUCKET - 1));
+        assertEquals(1, mMarkers.countThrough(ZERO_BUCKET));
+        assertEquals(ZERO_BUCKET, mMarkers.findBucket(0));
+        assertEquals(20, mMarkers.findBucket(1));
+    }
+
+    @Test
+    public void removeUnlinksOnlyThatParticipant() {
+        mMarkers.set(0, 0.1f);
+        mMarkers.set(1, 0.1f);
+        mMarkers.set(2, 0.1f);
+        assertTrue(mMarkers.remove(1));
+        assertFalse(mMarkers.remove(1));
+        assertFalse(mMarkers.contains(1));
+        assertEquals(2, mMarkers.size());
+        assertEquals(2, mMarkers.countThrough(ZERO_BUCKET + 1));
+        assertTrue(mMarkers.remove(0));
+        assertEquals(1, cluster(1));
+        assertArrayEquals(new int[]{2}, participants(1));
+    }
+
+    @Test
+    public void nanRemoves() {
+        mMarkers.set(0, 0.1f);
+        assertTrue(mMarkers.set(0, Float.NaN));
+        assertEquals(0, mMarkers.size());
+    }
+
+    @Test
+    public void clusterSeparatesBucketsOneSpanApart() {
+        mMarkers.set(0, 0);
+        mMarkers.set(1, 0.2f);
+        mMarkers.set(2, 0.3f);
+        assertEquals(2, cluster(3));
+        assertArrayEquals(new int[]{2, 1}, counts(2));
+        assertArrayEquals(new int[]{-1, 2}, participants(2));
+    }
+
+    @Test
+    public void clusterJoinsBucketsWithinTheSpan() {
+        mMarkers.set(0, 0);
+        mMarkers.set(1, 0.2f);
+        mMarkers.set(2, 0.3f);
+        assertEquals(1, cluster(4));
+        assertArrayEquals(new int[]{3}, counts(1));
+        assertEquals(ZERO_BUCKET + 2, mBuckets[0]);
+    }
+
+    @Test
+    public void clusterMergesGroupsWhoseMediansAreCloserThanTheSpan() {
+        mMarkers.set(0, 0);
+        mMarkers.set(1, 0.3f);
+        mMarkers.set(2, 0.3f);
+        mMarkers.set(3, 0.4f);
+        assertEquals(1, cluster(4));
+        assertArrayEquals(new int[]{4}, counts(1));
+        assertArrayEquals(new int[]{ZERO_BUCKET + 3}, buckets(1));
+    }
+
+    @Test
+    public void clusterBucketsAreAtLeastOneSpanApart() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            mMarkers.clear();
+            for (int id = 0; id < mMarkers.capacity(); id++) {
+                mMarkers.set(id, (random.nextInt(21) - 10) / 10f);
+            }
+            for (int span = 1; span <= 6; span++) {
+                int clusters = cluster(span);
+                int total = 0;
+                for (int i = 0; i < clusters; i++) {
+                    total += mCounts[i];
+                    if (i > 0) {
+                        assertTrue(mBuckets[i] - mBuckets[i - 1] >= span);
+                    }
+                }
+                assertEquals(mMarkers.size(), total);
+            }
+        }
+    }
+
+    @Test
+    public void clusterKeepsSingleParticipants() {
+        mMarkers.set(5, -1);
+        mMarkers.set(6, 1);
+        assertEquals(2, cluster(1));
+        assertArrayEquals(new int[]{0, 20}, buckets(2));
+        assertArrayEquals(new int[]{5, 6}, participants(2));
+    }
+
+    @Test
+    public void clusterOfEmptyMarkersIsEmpty() {
+        assertEquals(0, cluster(3));
+        mMarkers.set(0, 0);
+        mMarkers.clear();
+        assertEquals(0, cluster(3));
+        assertEquals(0, mMarkers.countThrough(20));
+    }
+
+    private int cluster(int span) {
+        return mMarkers.cluster(span, mBuckets, mCounts, mParticipants);
+    }
+
+    private int[] buckets(int count) {
+        return java.util.Arrays.copyOf(mBuckets, count);
+    }
+
+    private int[] counts(int count) {
+        return java.util.Arrays.copyOf(mCounts, count);
+    }
+
+    private int[] participants(int count) {
+        return java.util.Arrays.copyOf(mParticipants, count);
+    }
+}
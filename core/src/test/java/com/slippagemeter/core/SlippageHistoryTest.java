@@ -0,0 +1,75 @@
+package com.slippagemeter.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SlippageHistoryTest {
+
+    private SlippageHistory mHistory;
+
+    @Before
+    public void setUp() {
+        mHistory = new SlippageHistory(3);
+    }
+
+    @Test
+    public void valuesAreKeptOldestFirst() {
+        mHistory.add(1);
+        mHistory.add(2);
+        assertEquals(2, mHistory.size());
+        assertEquals(1, mHistory.get(0), 0);
+        assertEquals(2, mHistory.get(1), 0);
+    }
+
+    @Test
+    public void addingPastCapacityOverwritesTheOldest() {
+        for (int i = 1; i <= 7; i++) {
+            mHistory.add(i);
+            assertEquals(Math.min(i, 3), mHistory.size());
+            assertEquals(i, mHistory.get(mHistory.size() - 1), 0);
+        }
+        assertEquals(5, mHistory.get(0), 0);
+        assertEquals(6, mHistory.get(1), 0);
+        assertEquals(7, mHistory.get(2), 0);
+    }
+
+    @Test
+    public void copyToKeepsTheNewestThatFit() {
+        for (int i = 1; i <= 4; i++) {
+            mHistory.add(i);
+        }
+        float[] all = new float[5];
+        assertEquals(3, mHistory.copyTo(all));
+        assertArrayEquals(new float[]{2, 3, 4, 0, 0}, all, 0);
+        float[] two = new float[2];
+        assertEquals(2, mHistory.copyTo(two));
+        assertArrayEquals(new float[]{3, 4}, two, 0);
+    }
+
+    @Test
+    public void clearEmptiesTheBuffer() {
+        mHistory.add(1);
+        mHistory.add(2);
+        mHistory.add(3);
+        mHistory.add(4);
+        mHistory.clear();
+        assertEquals(0, mHistory.size());
+        mHistory.add(5);
+        assertEquals(1, mHistory.size());
+        assertEquals(5, mHistory.get(0), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastSizeThrows() {
+        mHistory.add(1);
+        mHistory.get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityShouldBePositive() {
+        new SlippageHistory(0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.slippagemeter.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SlippageStatisticsTest {
+
+    private static final float MAX_VALUE = 10;
+    private static final long WINDOW_MILLIS = 1000;
+    private static final long MILLI = 1000000L;
+    private static final float DELTA = 1e-4f;
+
+    private final float[] mMarkers = new float[SlippageStatistics.MARKER_COUNT];
+
+    @Test
+    public void percentilesOfAKnownSample() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 128);
+        for (int i = 100; i >= 1; i--) {
+            statistics.add(0, i / 10f);
+        }
+        statistics.readMarkers(0, mMarkers);
+        assertEquals(5.05f, mMarkers[SlippageStatistics.MEAN], DELTA);
+        assertEquals(5.0f, mMarkers[SlippageStatistics.P50], DELTA);
+        assertEquals(9.5f, mMarkers[SlippageStatistics.P95], DELTA);
+        assertEquals(9.9f, mMarkers[SlippageStatistics.P99], DELTA);
+    }
+
+    @Test
+    public void percentilesOfASingleValue() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 8);
+        statistics.add(0, -2.34f);
+        statistics.readMarkers(0, mMarkers);
+        assertEquals(-2.3f, mMarkers[SlippageStatistics.P50], DELTA);
+        assertEquals(-2.3f, mMarkers[SlippageStatistics.P99], DELTA);
+        assertEquals(-2.34f, mMarkers[SlippageStatistics.MEAN], DELTA);
+    }
+
+    @Test
+    public void emptyWindowReadsNaN() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 8);
+        statistics.readMarkers(0, mMarkers);
+        for (float marker : mMarkers) {
+            assertTrue(Float.isNaN(marker));
+        }
+    }
+
+    @Test
+    public void slidingWindowEvictsOldValues() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 8);
+        statistics.add(0, 1);
+        statistics.add(500 * MILLI, 2);
+        statistics.add(900 * MILLI, 3);
+        assertEquals(3, statistics.size(WINDOW_MILLIS * MILLI));
+        assertEquals(2, statistics.size(1200 * MILLI));
+        statistics.readMarkers(1200 * MILLI, mMarkers);
+        assertEquals(2.5f, mMarkers[SlippageStatistics.MEAN], DELTA);
+        assertEquals(2, mMarkers[SlippageStatistics.P50], DELTA);
+        statistics.readMarkers(2000 * MILLI, mMarkers);
+        assertTrue(Float.isNaN(mMarkers[SlippageStatistics.MEAN]));
+        assertEquals(0, statistics.size(2000 * MILLI));
+    }
+
+    @Test
+    public void overflowPastCapacityDropsTheOldest() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 4);
+        for (int i = 1; i <= 6; i++) {
+            statistics.add(i, i);
+        }
+        assertEquals(4, statistics.size(6));
+        statistics.readMarkers(6, mMarkers);
+        assertEquals(4.5f, mMarkers[SlippageStatistics.MEAN], DELTA);
+        assertEquals(4, mMarkers[SlippageStatistics.P50], DELTA);
+        assertEquals(6, mMarkers[SlippageStatistics.P99], DELTA);
+
+        long[] ages = new long[4];
+        float[] values = new float[4];
+        assertEquals(4, statistics.save(10, ages, values));
+        assertArrayEquals(new float[]{3, 4, 5, 6}, values, 0);
+        assertEquals(7, ages[0]);
+        assertEquals(4, ages[3]);
+    }
+
+    @Test
+    public void ewmaConvergesToASteadyValue() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 64, 0.5f);
+        statistics.add(0, 0);
+        assertEquals(0, statistics.getEwma(), 0);
+        statistics.add(1, 1);
+        assertEquals(0.5f, statistics.getEwma(), DELTA);
+        for (int i = 2; i <= 30; i++) {
+            statistics.add(i, 1);
+        }
+        assertEquals(1, statistics.getEwma(), 1e-6f);
+        statistics.readMarkers(30, mMarkers);
+        assertEquals(statistics.getEwma(), mMarkers[SlippageStatistics.EWMA], 0);
+    }
+
+    @Test
+    public void nanIsIgnored() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 8);
+        statistics.add(0, 1);
+        statistics.add(0, Float.NaN);
+        assertEquals(1, statistics.size(0));
+        assertEquals(1, statistics.getEwma(), 0);
+    }
+
+    @Test
+    public void restoreKeepsValuesAndEwma() {
+        SlippageStatistics statistics = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 8);
+        statistics.add(0, 1);
+        statistics.add(100 * MILLI, -1);
+        long[] ages = new long[2];
+        float[] values = new float[2];
+        int count = statistics.save(200 * MILLI, ages, values);
+
+        SlippageStatistics restored = new SlippageStatistics(MAX_VALUE, WINDOW_MILLIS, 8);
+        restored.restore(5000 * MILLI, ages, values, count, statistics.getEwma());
+        assertEquals(2, restored.size(5000 * MILLI));
+        assertEquals(statistics.getEwma(), restored.getEwma(), 0);
+        assertEquals(1, restored.size(5850 * MILLI));
+    }
+}
@@ -0,0 +1,141 @@
+package com.slippagemeter.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlippageThresholdsTest {
+
+    private static final int SYMBOL = 3;
+
+    private SlippageThresholds mThresholds;
+    private ThresholdEngine mEngine;
+    private final List<String> mEvents = new ArrayList<String>();
+
+    @Before
+    public void setUp() {
+        mThresholds = new SlippageThresholds(new float[]{2, -1, 1, -2}, 0.5f);
+        mEngine = new ThresholdEngine(SYMBOL + 1, new ThresholdEngine.Listener() {
+            @Override
+            public void onThresholdCrossed(int symbol, float level, boolean crossed, float slippage) {
+                assertEquals(SYMBOL, symbol);
+                mEvents.add((crossed ? "+" : "-") + level);
+            }
+        });
+        mEngine.setThresholds(SYMBOL, mThresholds);
+    }
+
+    @Test
+    public void levelsAreSorted() {
+        assertEquals(4, mThresholds.size());
+        assertEquals(-2, mThresholds.getLevel(0), 0);
+        assertEquals(2, mThresholds.getLevel(3), 0);
+        assertCrossed(2, 2);
+    }
+
+    @Test
+    public void valueExactlyOnAPositiveLevelCrossesIt() {
+        tick(1);
+        assertEvents("+1.0");
+        assertCrossed(2, 3);
+    }
+
+    @Test
+    public void valueExactlyOnANegativeLevelCrossesIt() {
+        tick(-1);
+        assertEvents("+-1.0");
+        assertCrossed(1, 2);
+    }
+
+    @Test
+    public void valuesBetweenLevelsCrossNothing() {
+        tick(0.99f);
+        tick(-0.99f);
+        tick(0);
+        assertEvents();
+        assertCrossed(2, 2);
+    }
+
+    @Test
+    public void crossingSeveralLevelsReportsInnermostFirst() {
+        tick(2.5f);
+        assertEvents("+1.0", "+2.0");
+        tick(-3);
+        assertEvents("-2.0", "-1.0", "+-1.0", "+-2.0");
+        assertCrossed(0, 2);
+    }
+
+    @Test
+    public void positiveLevelStaysCrossedInsideTheHysteresisBand() {
+        tick(1);
+        tick(0.6f);
+        tick(0.5f);
+        assertEvents("+1.0");
+        assertTrue(mThresholds.isCrossed(2));
+        tick(0.49f);
+        assertEvents("-1.0");
+        assertFalse(mThresholds.isCrossed(2));
+    }
+
+    @Test
+    public void negativeLevelStaysCrossedInsideTheHysteresisBand() {
+        tick(-1);
+        tick(-0.5f);
+        assertEvents("+-1.0");
+        tick(-0.49f);
+        assertEvents("--1.0");
+        assertCrossed(2, 2);
+    }
+
+    @Test
+    public void releasingOneLevelKeepsTheOneBelow() {
+        tick(2);
+        tick(1.4f);
+        assertEvents("+1.0", "+2.0", "-2.0");
+        assertCrossed(2, 3);
+    }
+
+    @Test
+    public void recrossingInsideTheBandReportsNothing() {
+        tick(1);
+        tick(0.7f);
+        tick(1.2f);
+        assertEvents("+1.0");
+    }
+
+    @Test
+    public void nanIsIgnored() {
+        tick(1);
+        tick(Float.NaN);
+        assertEvents("+1.0");
+        assertCrossed(2, 3);
+    }
+
+    @Test
+    public void symbolsWithoutThresholdsAreIgnored() {
+        mEngine.onTick(0, 10);
+        mEngine.setThresholds(SYMBOL, null);
+        tick(10);
+        assertEvents();
+    }
+
+    private void tick(float slippage) {
+        mEngine.onTick(SYMBOL, slippage);
+    }
+
+    private void assertEvents(String... events) {
+        assertEquals(java.util.Arrays.asList(events), mEvents);
+        mEvents.clear();
+    }
+
+    private void assertCrossed(int start, int end) {
+        assertEquals(start, mThresholds.getCrossedStart());
+        assertEquals(end, mThresholds.getCrossedEnd());
+    }
+}
@@ -0,0 +1,115 @@
+package com.slippagemeter.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TickAccumulatorTest {
+
+    private final TickAccumulator mAccumulator = new TickAccumulator();
+    private final float[] mTick = new float[3];
+
+    @Test
+    public void drainBeforeAnyOfferIsEmpty() {
+        assertFalse(mAccumulator.drain(mTick));
+    }
+
+    @Test
+    public void drainReturnsLatestMinAndMax() {
+        mAccumulator.offer(1);
+        mAccumulator.offer(3);
+        mAccumulator.offer(-2);
+        mAccumulator.offer(0.5f);
+        assertTrue(mAccumulator.drain(mTick));
+        assertArrayEquals(new float[]{0.5f, -2, 3}, mTick, 0);
+    }
+
+    @Test
+    public void drainWithoutNewTicksCollapsesToTheLatest() {
+        mAccumulator.offer(-1);
+        mAccumulator.offer(2);
+        mAccumulator.drain(mTick);
+        assertTrue(mAccumulator.drain(mTick));
+        assertArrayEquals(new float[]{2, 2, 2}, mTick, 0);
+        assertTrue(mAccumulator.drain(mTick));
+        assertArrayEquals(new float[]{2, 2, 2}, mTick, 0);
+    }
+
+    @Test
+    public void envelopeStartsAgainAfterADrain() {
+        mAccumulator.offer(-5);
+        mAccumulator.offer(5);
+        mAccumulator.drain(mTick);
+        mAccumulator.offer(1);
+        mAccumulator.offer(0);
+        mAccumulator.drain(mTick);
+        assertArrayEquals(new float[]{0, 0, 1}, mTick, 0);
+    }
+
+    @Test
+    public void equalValuesKeepTheEnvelope() {
+        mAccumulator.offer(1);
+        mAccumulator.offer(1);
+        mAccumulator.drain(mTick);
+        assertArrayEquals(new float[]{1, 1, 1}, mTick, 0);
+    }
+
+    @Test
+    public void concurrentOffersReachSomeDrain() throws InterruptedException {
+        final int threadCount = 4;
+        final int offers = 100000;
+        final float[] mins = new float[threadCount];
+        final float[] maxes = new float[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(thread);
+                    float min = Float.POSITIVE_INFINITY;
+                    float max = Float.NEGATIVE_INFINITY;
+                    for (int i = 0; i < offers; i++) {
+                        float slippage = (float) random.nextGaussian();
+                        min = Math.min(min, slippage);
+                        max = Math.max(max, slippage);
+                        mAccumulator.offer(slippage);
+                    }
+                    mins[thread] = min;
+                    maxes[thread] = max;
+                }
+            });
+            threads[t].start();
+        }
+        float drainedMin = Float.POSITIVE_INFINITY;
+        float drainedMax = Float.NEGATIVE_INFINITY;
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            if (mAccumulator.drain(mTick)) {
+                assertTrue(mTick[1] <= mTick[0] && mTick[0] <= mTick[2]);
+                drainedMin = Math.min(drainedMin, mTick[1]);
+                drainedMax = Math.max(drainedMax, mTick[2]);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int t = 0; t < threadCount; t++) {
+            min = Math.min(min, mins[t]);
+            max = Math.max(max, maxes[t]);
+        }
+        assertEquals(min, drainedMin, 0);
+        assertEquals(max, drainedMax, 0);
+    }
+}
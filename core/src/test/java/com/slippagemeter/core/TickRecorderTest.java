@@ -0,0 +1,162 @@
+package com.slippagemeter.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TickRecorderTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("ticks", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(mFile.delete());
+    }
+
+    @Test
+    public void recordsRoundTrip() throws IOException {
+        TickRecorder recorder = new TickRecorder(mFile);
+        recorder.record(Long.MIN_VALUE, -1.5f);
+        recorder.record(0, 0);
+        recorder.record(Long.MAX_VALUE, Float.MAX_VALUE);
+        assertEquals(3, recorder.getCount());
+        recorder.close();
+        assertEquals(TickRecorder.HEADER_SIZE + 3 * TickRecorder.RECORD_SIZE, mFile.length());
+
+        final long[] times = new long[3];
+        final float[] values = new float[3];
+        TickReplayer replayer = new TickReplayer(mFile);
+        try {
+            assertEquals(3, replayer.getCount());
+            assertEquals(3, replayer.replay(new TickReplayer.Sink() {
+                private int mIndex;
+
+                @Override
+                public void onTick(long timeNanos, float slippage) {
+                    times[mIndex] = timeNanos;
+                    values[mIndex] = slippage;
+                    mIndex++;
+                }
+            }, TickReplayer.AS_FAST_AS_POSSIBLE));
+        } finally {
+            replayer.close();
+        }
+        assertEquals(Long.MIN_VALUE, times[0]);
+        assertEquals(0, times[1]);
+        assertEquals(Long.MAX_VALUE, times[2]);
+        assertEquals(-1.5f, values[0], 0);
+        assertEquals(0, values[1], 0);
+        assertEquals(Float.MAX_VALUE, values[2], 0);
+    }
+
+    @Test
+    public void emptyFileHasNoTicks() throws IOException {
+        new TickRecorder(mFile).close();
+        assertEquals(TickRecorder.HEADER_SIZE, mFile.length());
+        assertEquals(0, replay());
+    }
+
+    @Test
+    public void replayCrossesTheMappedRegionBoundary() throws IOException {
+        long count = TickReplayer.REGION_RECORDS + 3;
+        TickRecorder recorder = new TickRecorder(mFile);
+        try {
+            for (long i = 0; i < count; i++) {
+                recorder.record(i, i % 1000);
+            }
+        } finally {
+            recorder.close();
+        }
+        TickReplayer replayer = new TickReplayer(mFile);
+        try {
+            assertEquals(count, replayer.getCount());
+            final long[] next = new long[1];
+            assertEquals(count, replayer.replay(new TickReplayer.Sink() {
+                @Override
+                public void onTick(long timeNanos, float slippage) {
+                    assertEquals(next[0], timeNanos);
+                    assertEquals(next[0] % 1000, slippage, 0);
+                    next[0]++;
+                }
+            }, TickReplayer.AS_FAST_AS_POSSIBLE));
+            assertEquals(count, next[0]);
+        } finally {
+            replayer.close();
+        }
+    }
+
+    @Test
+    public void truncatedLastRecordIsIgnored() throws IOException {
+        TickRecorder recorder = new TickRecorder(mFile);
+        recorder.record(1, 1);
+        recorder.record(2, 2);
+        recorder.close();
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - TickRecorder.RECORD_SIZE / 2);
+        } finally {
+            file.close();
+        }
+        assertEquals(1, replay());
+    }
+
+    @Test
+    public void cancelBeforeReplayDeliversNothing() throws IOException {
+        TickRecorder recorder = new TickRecorder(mFile);
+        recorder.record(1, 1);
+        recorder.close();
+        TickReplayer replayer = new TickReplayer(mFile);
+        try {
+            replayer.cancel();
+            assertEquals(0, replayer.replay(new TickReplayer.Sink() {
+                @Override
+                public void onTick(long timeNanos, float slippage) {
+                }
+            }, TickReplayer.AS_FAST_AS_POSSIBLE));
+        } finally {
+            replayer.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void fileShorterThanTheHeaderIsRejected() throws IOException {
+        new TickReplayer(mFile);
+    }
+
+    @Test(expected = IOException.class)
+    public void fileWithoutTheMagicIsRejected() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.writeInt(TickRecorder.MAGIC + 1);
+            file.writeInt(TickRecorder.VERSION);
+        } finally {
+            file.close();
+        }
+        new TickReplayer(mFile);
+    }
+
+    private long replay() throws IOException {
+        TickReplayer replayer = new TickReplayer(mFile);
+        try {
+            return replayer.replay(new TickReplayer.Sink() {
+                @Override
+                public void onTick(long timeNanos, float slippage) {
+                }
+            }, TickReplayer.AS_FAST_AS_POSSIBLE);
+        } finally {
+            replayer.close();
+        }
+    }
+}